@@ -0,0 +1,29 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected via the JMH command line, with the GC profiler enabled, so that allocations per operation are reported.
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * Runs the benchmarks selected by the specified JMH command line arguments.
+	 * @param args JMH command line arguments
+	 * @throws Exception if the benchmarks could not be run
+	 */
+	public static void main(String... args) throws Exception {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build()).run();
+	}
+
+	private BenchmarkRunner() {
+		// Hide
+	}
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.SessionStore;
+
+import org.wildfly.clustering.vertx.web.DistributableSessionManagerFactoryConfiguration;
+import org.wildfly.clustering.vertx.web.infinispan.embedded.InfinispanSessionStore;
+import org.wildfly.clustering.vertx.web.infinispan.remote.HotRodSessionStore;
+
+/**
+ * A load harness that starts a number of Vert.x nodes within a single JVM, each with its own distributable session store, and drives HTTP traffic to them, reporting the throughput and latency percentiles of each session operation.
+ * Nodes using an embedded Infinispan session store are clustered via a loopback JGroups stack, while nodes using a HotRod session store share the Infinispan server located via the specified URI.
+ * The harness is configured via the following system properties:
+ * <dl>
+ * <dt>nodes</dt><dd>The number of Vert.x nodes. Default is 3.</dd>
+ * <dt>store</dt><dd>The session store implementation, either EMBEDDED or HOTROD. Default is EMBEDDED.</dd>
+ * <dt>uri</dt><dd>The HotRod URI of an Infinispan server, required by the HOTROD session store.</dd>
+ * <dt>granularity</dt><dd>The session persistence granularity. Default is ATTRIBUTE.</dd>
+ * <dt>marshaller</dt><dd>The session attribute marshaller. Default is PROTOSTREAM.</dd>
+ * <dt>routing</dt><dd>The routing of requests to nodes, either STICKY or ROUND_ROBIN. Default is STICKY.</dd>
+ * <dt>clients</dt><dd>The number of concurrent clients, each of which issues requests sequentially. Default is 64.</dd>
+ * <dt>mix</dt><dd>The relative weights of create, read, write, and regenerate requests. Default is 5,60,30,5.</dd>
+ * <dt>warmup</dt><dd>The ISO-8601 duration during which requests are not measured. Default is PT10S.</dd>
+ * <dt>duration</dt><dd>The ISO-8601 duration during which requests are measured. Default is PT30S.</dd>
+ * </dl>
+ */
+public class LoadHarness {
+
+	enum Store implements BiFunction<Vertx, JsonObject, SessionStore> {
+		EMBEDDED() {
+			@Override
+			public SessionStore apply(Vertx vertx, JsonObject options) {
+				// Session stores of the same class loader and configuration resource share a single cluster member, so use a distinct resource per node
+				try (InputStream input = LoadHarness.class.getClassLoader().getResourceAsStream("infinispan-loopback.xml")) {
+					Path path = Files.createTempFile("infinispan-loopback-", ".xml");
+					path.toFile().deleteOnExit();
+					Files.copy(input, path, StandardCopyOption.REPLACE_EXISTING);
+					return new InfinispanSessionStore().init(vertx, options.put(InfinispanSessionStore.RESOURCE, path.toString()));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		},
+		HOTROD() {
+			@Override
+			public SessionStore apply(Vertx vertx, JsonObject options) {
+				String uri = System.getProperty("uri");
+				if (uri == null) {
+					throw new IllegalArgumentException("uri");
+				}
+				return new HotRodSessionStore().init(vertx, options.put(HotRodSessionStore.HOTROD_URI, uri).put(HotRodSessionStore.CONFIGURATION, """
+		{ "distributed-cache" : { "encoding" : { "key" : { "media-type" : "application/octet-stream" }, "value" : { "media-type" : "application/octet-stream" }}, "locking" : { "isolation" : "REPEATABLE_READ" }, "transaction" : { "mode" : "NON_XA", "locking" : "PESSIMISTIC" }}}"""));
+			}
+		},
+	}
+
+	enum Routing {
+		STICKY,
+		ROUND_ROBIN,
+	}
+
+	enum Operation {
+		CREATE("/create"),
+		READ("/read"),
+		WRITE("/write"),
+		REGENERATE("/regenerate"),
+		;
+		private final String path;
+
+		Operation(String path) {
+			this.path = path;
+		}
+	}
+
+	private static final String COUNTER = "counter";
+	private static final String PROFILE = "profile";
+
+	/**
+	 * Runs this load harness, as configured via system properties.
+	 * @param args ignored
+	 * @throws Exception if the harness failed to run
+	 */
+	public static void main(String... args) throws Exception {
+		int nodes = Integer.getInteger("nodes", 3);
+		Store store = Store.valueOf(System.getProperty("store", Store.EMBEDDED.name()));
+		Routing routing = Routing.valueOf(System.getProperty("routing", Routing.STICKY.name()));
+		int clients = Integer.getInteger("clients", 64);
+		int[] weights = Arrays.stream(System.getProperty("mix", "5,60,30,5").split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+		if (weights.length != Operation.values().length) {
+			throw new IllegalArgumentException("mix");
+		}
+		Duration warmup = Duration.parse(System.getProperty("warmup", "PT10S"));
+		Duration duration = Duration.parse(System.getProperty("duration", "PT30S"));
+		JsonObject options = new JsonObject()
+				.put(DistributableSessionManagerFactoryConfiguration.DEPLOYMENT_NAME, LoadHarness.class.getSimpleName())
+				.put(DistributableSessionManagerFactoryConfiguration.GRANULARITY, System.getProperty("granularity", "ATTRIBUTE"))
+				.put(DistributableSessionManagerFactoryConfiguration.MARSHALLER, System.getProperty("marshaller", "PROTOSTREAM"));
+
+		System.out.printf("Starting %d %s nodes with %s%n", nodes, store, options);
+		List<Node> cluster = new ArrayList<>(nodes);
+		try {
+			for (int i = 0; i < nodes; ++i) {
+				cluster.add(new Node(store, options.copy()));
+			}
+			System.out.printf("Running %d clients with %s routing, and %s mix, for %s after %s warmup%n", clients, routing, Arrays.toString(weights), duration, warmup);
+			Map<Operation, Samples> results = run(cluster, routing, clients, weights, warmup, duration);
+			report(results, duration);
+		} finally {
+			for (Node node : cluster) {
+				node.close();
+			}
+		}
+	}
+
+	private static Map<Operation, Samples> run(List<Node> cluster, Routing routing, int clients, int[] weights, Duration warmup, Duration duration) throws Exception {
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+		AtomicInteger counter = new AtomicInteger();
+		long start = System.nanoTime() + warmup.toNanos();
+		long end = start + duration.toNanos();
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		try {
+			List<Future<Map<Operation, Samples>>> futures = new ArrayList<>(clients);
+			for (int i = 0; i < clients; ++i) {
+				int home = i % cluster.size();
+				futures.add(executor.submit(() -> {
+					Map<Operation, Samples> results = new EnumMap<>(Operation.class);
+					for (Operation operation : Operation.values()) {
+						results.put(operation, new Samples());
+					}
+					String cookie = null;
+					for (long now = System.nanoTime(); now < end; now = System.nanoTime()) {
+						Operation operation = (cookie != null) ? select(weights) : Operation.CREATE;
+						Node node = cluster.get((routing == Routing.STICKY) ? home : Math.floorMod(counter.getAndIncrement(), cluster.size()));
+						HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + node.getPort() + operation.path));
+						if (operation != Operation.CREATE) {
+							builder.header("Cookie", cookie);
+						}
+						long requestStart = System.nanoTime();
+						Samples samples = results.get(operation);
+						try {
+							HttpResponse<Void> response = client.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+							long latency = System.nanoTime() - requestStart;
+							if (response.statusCode() != 200) {
+								samples.error(requestStart >= start);
+								continue;
+							}
+							if (requestStart >= start) {
+								samples.add(latency);
+							}
+							// Session cookie is only set on create or regenerate
+							for (String value : response.headers().allValues("Set-Cookie")) {
+								if (value.startsWith(SessionHandler.DEFAULT_SESSION_COOKIE_NAME + "=")) {
+									int index = value.indexOf(';');
+									cookie = (index < 0) ? value : value.substring(0, index);
+								}
+							}
+						} catch (IOException e) {
+							samples.error(requestStart >= start);
+						}
+					}
+					return results;
+				}));
+			}
+			Map<Operation, Samples> results = new EnumMap<>(Operation.class);
+			for (Future<Map<Operation, Samples>> future : futures) {
+				for (Map.Entry<Operation, Samples> entry : future.get().entrySet()) {
+					results.merge(entry.getKey(), entry.getValue(), Samples::merge);
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Operation select(int[] weights) {
+		int total = Arrays.stream(weights).sum();
+		int value = ThreadLocalRandom.current().nextInt(total);
+		Operation[] operations = Operation.values();
+		for (int i = 0; i < operations.length; ++i) {
+			value -= weights[i];
+			if (value < 0) {
+				return operations[i];
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	private static void report(Map<Operation, Samples> results, Duration duration) {
+		double seconds = duration.toNanos() / 1e9;
+		System.out.printf("%-12s %10s %10s %10s %12s %12s %12s%n", "Operation", "Requests", "Errors", "Ops/s", "p50 (ms)", "p99 (ms)", "p999 (ms)");
+		Samples total = new Samples();
+		for (Map.Entry<Operation, Samples> entry : results.entrySet()) {
+			print(entry.getKey().name(), entry.getValue(), seconds);
+			total = total.merge(entry.getValue());
+		}
+		print("TOTAL", total, seconds);
+	}
+
+	private static void print(String name, Samples samples, double seconds) {
+		long[] latencies = samples.sorted();
+		System.out.printf("%-12s %10d %10d %10.1f %12.3f %12.3f %12.3f%n", name, latencies.length, samples.errors, latencies.length / seconds, percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999));
+	}
+
+	private static double percentile(long[] sorted, double quantile) {
+		if (sorted.length == 0) {
+			return Double.NaN;
+		}
+		int index = Math.max((int) Math.ceil(quantile * sorted.length) - 1, 0);
+		return sorted[index] / 1e6;
+	}
+
+	// Latencies, in nanoseconds, recorded by a single client
+	private static class Samples {
+		private long[] latencies = new long[1024];
+		private int size = 0;
+		private long errors = 0;
+
+		void add(long latency) {
+			if (this.size == this.latencies.length) {
+				this.latencies = Arrays.copyOf(this.latencies, this.size * 2);
+			}
+			this.latencies[this.size++] = latency;
+		}
+
+		void error(boolean measured) {
+			if (measured) {
+				this.errors += 1;
+			}
+		}
+
+		Samples merge(Samples samples) {
+			Samples result = new Samples();
+			result.latencies = Arrays.copyOf(this.latencies, this.size + samples.size);
+			System.arraycopy(samples.latencies, 0, result.latencies, this.size, samples.size);
+			result.size = this.size + samples.size;
+			result.errors = this.errors + samples.errors;
+			return result;
+		}
+
+		long[] sorted() {
+			long[] result = Arrays.copyOf(this.latencies, this.size);
+			Arrays.sort(result);
+			return result;
+		}
+	}
+
+	private static class Node implements AutoCloseable {
+		private final Vertx vertx;
+		private final SessionStore store;
+		private final HttpServer server;
+
+		Node(Store store, JsonObject options) {
+			this.vertx = Vertx.vertx();
+			this.store = store.apply(this.vertx, options);
+			Router router = Router.router(this.vertx);
+			router.route().handler(SessionHandler.create(this.store));
+			router.get(Operation.CREATE.path).handler(context -> {
+				Session session = context.session();
+				session.put(COUNTER, 0);
+				session.put(PROFILE, new JsonObject().put("name", "foo").put("locale", "en_US"));
+				context.end();
+			});
+			router.get(Operation.READ.path).handler(context -> {
+				Session session = context.session();
+				context.end(String.format("%s %s", session.<Integer>get(COUNTER), session.<JsonObject>get(PROFILE)));
+			});
+			router.get(Operation.WRITE.path).handler(context -> {
+				Session session = context.session();
+				Integer value = session.get(COUNTER);
+				session.put(COUNTER, (value != null) ? value + 1 : 0);
+				context.end();
+			});
+			router.get(Operation.REGENERATE.path).handler(context -> {
+				context.session().regenerateId();
+				context.end();
+			});
+			this.server = join(this.vertx.createHttpServer().requestHandler(router).listen(0));
+		}
+
+		int getPort() {
+			return this.server.actualPort();
+		}
+
+		@Override
+		public void close() {
+			try {
+				join(this.server.close());
+				this.store.close();
+			} finally {
+				join(this.vertx.close());
+			}
+		}
+	}
+
+	private static <T> T join(io.vertx.core.Future<T> future) {
+		return future.toCompletionStage().toCompletableFuture().join();
+	}
+
+	private LoadHarness() {
+		// Hide
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.SessionStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.clustering.vertx.web.DistributableSessionManagerFactoryConfiguration;
+import org.wildfly.clustering.vertx.web.infinispan.embedded.InfinispanSessionStore;
+
+/**
+ * Measures the cost, including allocations when run via {@link BenchmarkRunner}, of the attribute accessors of a distributable session.
+ * Uses a local (i.e. non-clustered) embedded Infinispan cache, to isolate the accessors from any network traffic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionAccessorBenchmark {
+	private static final String KEY = "foo";
+	private static final String VALUE = "bar";
+	private static final String MISSING_KEY = "missing";
+
+	@Param({ "SESSION", "ATTRIBUTE" })
+	private String granularity;
+
+	private Vertx vertx;
+	private SessionStore store;
+	private Session session;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.vertx = Vertx.vertx();
+		JsonObject options = new JsonObject()
+				.put(DistributableSessionManagerFactoryConfiguration.DEPLOYMENT_NAME, this.getClass().getSimpleName() + "-" + this.granularity)
+				.put(DistributableSessionManagerFactoryConfiguration.GRANULARITY, this.granularity)
+				.put(InfinispanSessionStore.RESOURCE, "infinispan-local.xml");
+		this.store = new InfinispanSessionStore().init(this.vertx, options);
+		Session newSession = this.store.createSession(SessionHandler.DEFAULT_SESSION_TIMEOUT);
+		newSession.put(KEY, VALUE);
+		join(this.store.put(newSession));
+		// Retain the loaded session for the duration of this trial
+		this.session = join(this.store.get(newSession.id()));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		try {
+			this.session.destroy();
+			// Release the retained session, whose invalidation exits the store's lifecycle gate, before closing the store
+			join(this.store.put(this.session));
+			this.store.close();
+		} finally {
+			join(this.vertx.close());
+		}
+	}
+
+	@Benchmark
+	public Object get() {
+		return this.session.get(KEY);
+	}
+
+	@Benchmark
+	public Session put() {
+		return this.session.put(KEY, VALUE);
+	}
+
+	@Benchmark
+	public Object remove() {
+		return this.session.remove(MISSING_KEY);
+	}
+
+	@Benchmark
+	public boolean isEmpty() {
+		return this.session.isEmpty();
+	}
+
+	@Benchmark
+	public long timeout() {
+		return this.session.timeout();
+	}
+
+	@Benchmark
+	public long lastAccessed() {
+		return this.session.lastAccessed();
+	}
+
+	private static <T> T join(Future<T> future) {
+		return future.toCompletionStage().toCompletableFuture().join();
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.authorization.PermissionBasedAuthorization;
+import io.vertx.ext.auth.authorization.RoleBasedAuthorization;
+import io.vertx.ext.auth.authorization.WildcardPermissionBasedAuthorization;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.impl.UserHolder;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.clustering.marshalling.ByteBufferMarshaller;
+import org.wildfly.clustering.vertx.web.CompressingByteBufferMarshaller;
+import org.wildfly.clustering.vertx.web.DistributableSessionManagerFactoryConfiguration;
+import org.wildfly.clustering.vertx.web.SessionAttributeMarshaller;
+
+/**
+ * Measures the throughput, including allocations when run via {@link BenchmarkRunner}, of each session attribute marshaller for representative session attributes.
+ * The marshalled size of each session attribute is reported via the {@link MarshalledBytes} counter, whose score divided by that of the benchmark yields the marshalled size in bytes.
+ * N.B. The JAVA marshaller only supports serializable session attributes, i.e. the MAP payload, and is thus excluded by default, but may be benchmarked via {@code -p marshaller=JAVA -p payload=MAP}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionAttributeMarshallerBenchmark {
+
+	/**
+	 * Enumerates representative session attributes.
+	 */
+	public enum Payload implements Supplier<Object> {
+		/** A serializable map of identifiers, counters, and strings. */
+		MAP() {
+			@Override
+			public Object get() {
+				Map<String, Object> map = new HashMap<>();
+				map.put("id", UUID.randomUUID());
+				map.put("visits", 42L);
+				map.put("locale", "en_US");
+				List<UUID> recent = new ArrayList<>();
+				for (int i = 0; i < 10; ++i) {
+					recent.add(UUID.randomUUID());
+				}
+				map.put("recent", recent);
+				return map;
+			}
+		},
+		/** A nested JSON object, e.g. a shopping cart. */
+		JSON() {
+			@Override
+			public Object get() {
+				JsonArray items = new JsonArray();
+				for (int i = 0; i < 10; ++i) {
+					items.add(new JsonObject()
+							.put("sku", UUID.randomUUID().toString())
+							.put("quantity", i + 1)
+							.put("price", 9.99d * (i + 1))
+							.put("tags", new JsonArray(List.of("foo", "bar"))));
+				}
+				return new JsonObject()
+						.put("id", UUID.randomUUID().toString())
+						.put("updated", Instant.now())
+						.put("checkout", false)
+						.put("items", items)
+						.put("shipping", new JsonObject().put("street", "1 Main St").put("city", "Boston").put("country", "US"));
+			}
+		},
+		/** An authenticated user with role and permission authorizations. */
+		USER() {
+			@Override
+			public Object get() {
+				return createUser();
+			}
+		},
+		/** The user holder stored by Vert.x Web on behalf of an authenticated user. */
+		USER_HOLDER() {
+			@Override
+			public Object get() {
+				User user = createUser();
+				RoutingContext context = (RoutingContext) Proxy.newProxyInstance(RoutingContext.class.getClassLoader(), new Class<?>[] { RoutingContext.class }, (proxy, method, args) -> {
+					if (method.getName().equals("user")) {
+						return user;
+					}
+					throw new UnsupportedOperationException(method.getName());
+				});
+				return new UserHolder(context);
+			}
+		},
+		;
+
+		static User createUser() {
+			User user = User.create(new JsonObject().put("username", "foo").put("access_token", UUID.randomUUID().toString()), new JsonObject().put("exp", Instant.now().getEpochSecond()));
+			user.authorizations().put("roles", Set.of(RoleBasedAuthorization.create("admin"), RoleBasedAuthorization.create("user")));
+			user.authorizations().put("permissions", Set.of(PermissionBasedAuthorization.create("read"), PermissionBasedAuthorization.create("write"), WildcardPermissionBasedAuthorization.create("orders:*")));
+			return user;
+		}
+	}
+
+	@Param({ "JBOSS", "PROTOSTREAM", "PROTOSTREAM+DEFLATE" })
+	private String marshaller;
+
+	@Param({ "MAP", "JSON", "USER", "USER_HOLDER" })
+	private Payload payload;
+
+	private ByteBufferMarshaller attributeMarshaller;
+	private Object attribute;
+	private ByteBuffer buffer;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		ClassLoader loader = this.getClass().getClassLoader();
+		String[] names = this.marshaller.split("\\+", 2);
+		ByteBufferMarshaller marshaller = SessionAttributeMarshaller.valueOf(names[0]).apply(loader);
+		this.attributeMarshaller = (names.length > 1) ? new CompressingByteBufferMarshaller(marshaller, DistributableSessionManagerFactoryConfiguration.DEFAULT_COMPRESSION_THRESHOLD) : marshaller;
+		this.attribute = this.payload.get();
+		if (!this.attributeMarshaller.isMarshallable(this.attribute)) {
+			throw new IllegalStateException(String.format("%s cannot marshal %s", this.marshaller, this.payload));
+		}
+		this.buffer = this.attributeMarshaller.write(this.attribute);
+	}
+
+	@Benchmark
+	public ByteBuffer write(MarshalledBytes counter) throws IOException {
+		ByteBuffer buffer = this.attributeMarshaller.write(this.attribute);
+		counter.bytes += buffer.remaining();
+		return buffer;
+	}
+
+	@Benchmark
+	public Object read(MarshalledBytes counter) throws IOException {
+		ByteBuffer buffer = this.buffer.duplicate();
+		counter.bytes += buffer.remaining();
+		return this.attributeMarshaller.read(buffer);
+	}
+
+	/**
+	 * Counts the bytes written or read by each benchmark, normalized like its primary score.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class MarshalledBytes {
+		/** The number of marshalled bytes written or read */
+		public long bytes;
+
+		/**
+		 * Resets this counter prior to each iteration.
+		 */
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.bytes = 0;
+		}
+	}
+}
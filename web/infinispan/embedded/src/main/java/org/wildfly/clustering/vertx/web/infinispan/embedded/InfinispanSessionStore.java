@@ -5,18 +5,14 @@
 package org.wildfly.clustering.vertx.web.infinispan.embedded;
 
 import java.io.File;
-import java.lang.management.ManagementFactory;
 import java.net.URL;
 import java.time.Duration;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.Optional;
 import java.util.OptionalInt;
-import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.management.ObjectName;
-
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import io.vertx.core.Context;
 import io.vertx.core.json.JsonObject;
@@ -27,52 +23,17 @@ import org.infinispan.commons.dataconversion.MediaType;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.configuration.cache.StorageType;
-import org.infinispan.configuration.global.GlobalConfigurationBuilder;
-import org.infinispan.configuration.global.GlobalJmxConfiguration;
-import org.infinispan.configuration.global.ShutdownHookBehavior;
-import org.infinispan.configuration.global.TransportConfiguration;
-import org.infinispan.configuration.parsing.ConfigurationBuilderHolder;
-import org.infinispan.configuration.parsing.ParserRegistry;
 import org.infinispan.eviction.EvictionStrategy;
-import org.infinispan.expiration.ExpirationManager;
-import org.infinispan.globalstate.ConfigurationStorage;
-import org.infinispan.manager.DefaultCacheManager;
 import org.infinispan.manager.EmbeddedCacheManager;
-import org.infinispan.notifications.impl.ListenerInvocation;
-import org.infinispan.protostream.SerializationContext;
-import org.infinispan.protostream.SerializationContextInitializer;
-import org.infinispan.remoting.transport.jgroups.JGroupsChannelConfigurator;
-import org.infinispan.remoting.transport.jgroups.JGroupsTransport;
 import org.infinispan.transaction.tm.EmbeddedTransactionManager;
-import org.infinispan.util.concurrent.BlockingManager;
-import org.infinispan.util.concurrent.NonBlockingManager;
 import org.jboss.logging.Logger;
-import org.jgroups.Address;
-import org.jgroups.JChannel;
-import org.jgroups.Message;
-import org.jgroups.jmx.JmxConfigurator;
-import org.jgroups.util.Util;
 import org.kohsuke.MetaInfServices;
 import org.wildfly.clustering.cache.infinispan.embedded.EmbeddedCacheConfiguration;
 import org.wildfly.clustering.cache.infinispan.embedded.container.DataContainerConfigurationBuilder;
 import org.wildfly.clustering.cache.infinispan.marshalling.MediaTypes;
-import org.wildfly.clustering.cache.infinispan.marshalling.UserMarshaller;
 import org.wildfly.clustering.function.BiFunction;
-import org.wildfly.clustering.function.Function;
-import org.wildfly.clustering.function.Predicate;
 import org.wildfly.clustering.function.Runner;
-import org.wildfly.clustering.marshalling.ByteBufferMarshaller;
-import org.wildfly.clustering.marshalling.protostream.ClassLoaderMarshaller;
-import org.wildfly.clustering.marshalling.protostream.ProtoStreamByteBufferMarshaller;
-import org.wildfly.clustering.marshalling.protostream.SerializationContextBuilder;
-import org.wildfly.clustering.server.group.GroupCommandDispatcherFactory;
 import org.wildfly.clustering.server.infinispan.dispatcher.CacheContainerCommandDispatcherFactory;
-import org.wildfly.clustering.server.infinispan.dispatcher.ChannelEmbeddedCacheManagerCommandDispatcherFactoryConfiguration;
-import org.wildfly.clustering.server.infinispan.dispatcher.EmbeddedCacheManagerCommandDispatcherFactory;
-import org.wildfly.clustering.server.infinispan.dispatcher.LocalEmbeddedCacheManagerCommandDispatcherFactoryConfiguration;
-import org.wildfly.clustering.server.jgroups.ChannelGroupMember;
-import org.wildfly.clustering.server.jgroups.dispatcher.ChannelCommandDispatcherFactory;
-import org.wildfly.clustering.server.jgroups.dispatcher.JChannelCommandDispatcherFactory;
 import org.wildfly.clustering.session.SessionManagerFactory;
 import org.wildfly.clustering.session.SessionManagerFactoryConfiguration;
 import org.wildfly.clustering.session.infinispan.embedded.InfinispanSessionManagerFactory;
@@ -89,6 +50,8 @@ public class InfinispanSessionStore extends DistributableSessionStore {
 	public static final String RESOURCE = "resource";
 	/** The name of the property specifying the name of a cache configuration. */
 	public static final String CACHE = "cache";
+	/** The name of the property specifying the storage type of the data container of a cache, i.e. HEAP or OFF_HEAP. */
+	public static final String STORAGE = "storage";
 
 	static final Logger LOGGER = Logger.getLogger(InfinispanSessionStore.class);
 	static final String DEFAULT_RESOURCE = "infinispan.xml";
@@ -104,12 +67,12 @@ public class InfinispanSessionStore extends DistributableSessionStore {
 	private InfinispanSessionStore(Deque<Runnable> closeTasks) {
 		super(new BiFunction<>() {
 			@Override
-			public SessionManagerFactory<Context, Void> apply(Context context, JsonObject options) {
-				SessionManagerFactoryConfiguration<Void> configuration = new DistributableSessionManagerFactoryConfiguration(context, options);
+			public SessionManagerFactory<Context, Void> apply(DistributableSessionManagerFactoryConfiguration configuration, JsonObject options) {
 				ClassLoader loader = configuration.getClassLoader();
 				String deploymentName = configuration.getDeploymentName();
 				String resourceName = options.getString(RESOURCE, DEFAULT_RESOURCE);
 				String templateName = options.getString(CACHE);
+				StorageType storage = StorageType.valueOf(options.getString(STORAGE, StorageType.HEAP.name()));
 
 				COUNTER.incrementAndGet();
 				closeTasks.add(() -> {
@@ -131,101 +94,17 @@ public class InfinispanSessionStore extends DistributableSessionStore {
 							throw new IllegalArgumentException(resourceName);
 						}
 					}
-					ConfigurationBuilderHolder holder = new ParserRegistry(loader, false, System.getProperties()).parse(url);
-					GlobalConfigurationBuilder global = holder.getGlobalConfigurationBuilder();
-					String containerName = global.cacheContainer().name();
-					TransportConfiguration transport = Optional.of(global.transport().create()).filter(t -> t.nodeName() != null).orElseGet(() -> global.transport().nodeName(Util.generateLocalName()).create());
-
-					JGroupsChannelConfigurator configurator = (transport.transport() != null) ? new JChannelConfigurator(transport, loader) : null;
-					JChannel channel = (configurator != null) ? configurator.createChannel(transport.nodeName()) : null;
-					if (channel != null) {
-						LOGGER.debugf("Connecting %s to %s", transport.nodeName(), transport.clusterName());
-						channel.connect(transport.clusterName());
-						LOGGER.debugf("Connected %s to %s with view: %s", channel.getName(), channel.getClusterName(), channel.view().getMembers());
-						closeTasks.add(() -> {
-							LOGGER.debugf("Disconnecting %s from %s with view: %s", channel.getName(), channel.getClusterName(), channel.view().getMembers());
-							try {
-								channel.disconnect();
-								LOGGER.debugf("Disconnected %s from %s", transport.nodeName(), transport.clusterName());
-							} finally {
-								channel.close();
-							}
-						});
-
-						GlobalJmxConfiguration jmx = global.jmx().create();
-						if (jmx.enabled()) {
-							ObjectName prefix = new ObjectName(jmx.domain(), "manager", ObjectName.quote(containerName));
-							JmxConfigurator.registerChannel(channel, ManagementFactory.getPlatformMBeanServer(), prefix, transport.clusterName(), true);
-							closeTasks.add(() -> {
-								try {
-									JmxConfigurator.unregisterChannel(channel, ManagementFactory.getPlatformMBeanServer(), prefix, transport.clusterName());
-								} catch (Exception e) {
-									LOGGER.warn(e.getLocalizedMessage(), e);
-								}
-							});
-						}
-
-						Properties properties = new Properties();
-						properties.put(JGroupsTransport.CHANNEL_CONFIGURATOR, new ForkChannelConfigurator(channel, containerName));
-						global.transport().withProperties(properties);
-					}
-
-					ChannelCommandDispatcherFactory channelCommandDispatcherFactory = (channel != null) ? new JChannelCommandDispatcherFactory(new JChannelCommandDispatcherFactory.Configuration() {
-						@Override
-						public JChannel getChannel() {
-							return channel;
-						}
-
-						@Override
-						public ByteBufferMarshaller getMarshaller() {
-							return this.getMarshallerFactory().apply(JChannelCommandDispatcherFactory.class.getClassLoader());
-						}
-
-						@Override
-						public Function<ClassLoader, ByteBufferMarshaller> getMarshallerFactory() {
-							return loader -> new ProtoStreamByteBufferMarshaller(SerializationContextBuilder.newInstance(ClassLoaderMarshaller.of(loader)).load(loader).build());
-						}
-
-						@Override
-						public Predicate<Message> getUnknownForkPredicate() {
-							return Predicate.not(Message::hasPayload);
-						}
-					}) : null;
-					if (channelCommandDispatcherFactory != null) {
-						closeTasks.add(channelCommandDispatcherFactory::close);
-					}
-
-					global.classLoader(loader)
-							.shutdown().hookBehavior(ShutdownHookBehavior.DONT_REGISTER)
-							.blockingThreadPool().threadFactory(new DefaultBlockingThreadFactory(BlockingManager.class))
-							.expirationThreadPool().threadFactory(new DefaultBlockingThreadFactory(ExpirationManager.class))
-							.listenerThreadPool().threadFactory(new DefaultBlockingThreadFactory(ListenerInvocation.class))
-							.nonBlockingThreadPool().threadFactory(new DefaultNonBlockingThreadFactory(NonBlockingManager.class))
-							.serialization()
-								.marshaller(new UserMarshaller(MediaTypes.WILDFLY_PROTOSTREAM, new ProtoStreamByteBufferMarshaller(SerializationContextBuilder.newInstance(ClassLoaderMarshaller.of(loader)).load(loader).build())))
-								// Register dummy serialization context initializer, to bypass service loading in org.infinispan.marshall.protostream.impl.SerializationContextRegistryImpl
-								// Otherwise marshaller auto-detection will not work
-								.addContextInitializer(new SerializationContextInitializer() {
-									@Override
-									public void registerMarshallers(SerializationContext context) {
-									}
-
-									@Override
-									public void registerSchema(SerializationContext context) {
-									}
-								})
-							.globalState().configurationStorage(ConfigurationStorage.IMMUTABLE).disable();
-
-					EmbeddedCacheManager container = new DefaultCacheManager(holder, false);
-					container.start();
-					closeTasks.add(container::stop);
+					SharedCacheContainer shared = SharedCacheContainer.acquire(loader, url);
+					closeTasks.add(shared::close);
+					EmbeddedCacheManager container = shared.getCacheContainer();
 
 					Configuration template = (templateName != null) ? container.getCacheConfiguration(templateName) : container.getDefaultCacheConfiguration();
 					if (template == null) {
 						throw new IllegalArgumentException(templateName);
 					}
 					ConfigurationBuilder builder = new ConfigurationBuilder().read(template).template(false);
-					builder.encoding().mediaType(MediaType.APPLICATION_OBJECT_TYPE);
+					// Off-heap entries are stored in their marshalled form, via the ProtoStream marshaller of the cache container
+					builder.encoding().mediaType((storage == StorageType.OFF_HEAP) ? MediaTypes.WILDFLY_PROTOSTREAM.toString() : MediaType.APPLICATION_OBJECT_TYPE);
 
 					if (template.invocationBatching().enabled()) {
 						builder.transaction().transactionManagerLookup(EmbeddedTransactionManager::getInstance);
@@ -237,7 +116,11 @@ public class InfinispanSessionStore extends DistributableSessionStore {
 					OptionalInt maxActiveSessions = configuration.getSizeThreshold();
 					Optional<Duration> idleTimeout = configuration.getIdleThreshold();
 					EvictionStrategy eviction = maxActiveSessions.isPresent() ? EvictionStrategy.REMOVE : EvictionStrategy.MANUAL;
-					builder.memory().storage(StorageType.HEAP)
+					if (eviction.isEnabled() && (storage != StorageType.HEAP)) {
+						// Off-heap data container evicts individual entries, and cannot cascade eviction of session meta data to the remaining entries of its session
+						throw new IllegalArgumentException(String.format("%s storage does not support %s", storage, DistributableSessionManagerFactoryConfiguration.MAX_ACTIVE_SESSIONS));
+					}
+					builder.memory().storage(storage)
 							.whenFull(eviction)
 							.maxCount(maxActiveSessions.orElse(-1))
 							;
@@ -249,31 +132,9 @@ public class InfinispanSessionStore extends DistributableSessionStore {
 						idleTimeout.ifPresent(containerBuilder::idleTimeout);
 					}
 
-					container.defineConfiguration(deploymentName, builder.build());
-					closeTasks.add(() -> container.undefineConfiguration(deploymentName));
-
-					CacheContainerCommandDispatcherFactory commandDispatcherFactory = (channelCommandDispatcherFactory != null) ? new EmbeddedCacheManagerCommandDispatcherFactory<>(new ChannelEmbeddedCacheManagerCommandDispatcherFactoryConfiguration() {
-						@Override
-						public GroupCommandDispatcherFactory<Address, ChannelGroupMember> getCommandDispatcherFactory() {
-							return channelCommandDispatcherFactory;
-						}
-
-						@Override
-						public EmbeddedCacheManager getCacheContainer() {
-							return container;
-						}
-					}) : new EmbeddedCacheManagerCommandDispatcherFactory<>(new LocalEmbeddedCacheManagerCommandDispatcherFactoryConfiguration() {
-						@Override
-						public EmbeddedCacheManager getCacheContainer() {
-							return container;
-						}
-					});
-
-					Cache<?, ?> cache = container.getCache(deploymentName);
-					cache.start();
-					closeTasks.add(cache::stop);
-
-					return new InfinispanSessionManagerFactory<>(new InfinispanSessionManagerFactory.Configuration<>() {
+					CacheContainerCommandDispatcherFactory commandDispatcherFactory = shared.getCommandDispatcherFactory();
+					// Only the first session store of this deployment defines its cache and creates its session manager factory
+					SessionManagerFactory<Context, Void> factory = shared.acquireSessionManagerFactory(deploymentName, builder::build, cache -> new InfinispanSessionManagerFactory<>(new InfinispanSessionManagerFactory.Configuration<>() {
 						@Override
 						public SessionManagerFactoryConfiguration<Void> getSessionManagerFactoryConfiguration() {
 							return configuration;
@@ -299,8 +160,13 @@ public class InfinispanSessionStore extends DistributableSessionStore {
 								}
 							};
 						}
-					});
+					}));
+					closeTasks.add(() -> shared.releaseSessionManagerFactory(deploymentName));
+					return factory;
 				} catch (Exception e) {
+					// Release any shared resources acquired thus far
+					Runner.of(closeTasks::descendingIterator).run();
+					closeTasks.clear();
 					throw new IllegalStateException(e);
 				}
 			}
@@ -0,0 +1,400 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web.infinispan.embedded;
+
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+import javax.management.ObjectName;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalJmxConfiguration;
+import org.infinispan.configuration.global.ShutdownHookBehavior;
+import org.infinispan.configuration.global.TransportConfiguration;
+import org.infinispan.configuration.parsing.ConfigurationBuilderHolder;
+import org.infinispan.configuration.parsing.ParserRegistry;
+import org.infinispan.expiration.ExpirationManager;
+import org.infinispan.globalstate.ConfigurationStorage;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.impl.ListenerInvocation;
+import org.infinispan.protostream.SerializationContext;
+import org.infinispan.protostream.SerializationContextInitializer;
+import org.infinispan.remoting.transport.jgroups.JGroupsChannelConfigurator;
+import org.infinispan.remoting.transport.jgroups.JGroupsTransport;
+import org.infinispan.util.concurrent.BlockingManager;
+import org.infinispan.util.concurrent.NonBlockingManager;
+import org.jgroups.Address;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.jmx.JmxConfigurator;
+import org.jgroups.util.Util;
+import org.wildfly.clustering.cache.infinispan.marshalling.MediaTypes;
+import org.wildfly.clustering.cache.infinispan.marshalling.UserMarshaller;
+import org.wildfly.clustering.function.Consumer;
+import org.wildfly.clustering.function.Function;
+import org.wildfly.clustering.function.Predicate;
+import org.wildfly.clustering.function.Runner;
+import org.wildfly.clustering.function.Supplier;
+import org.wildfly.clustering.marshalling.ByteBufferMarshaller;
+import org.wildfly.clustering.server.group.GroupCommandDispatcherFactory;
+import org.wildfly.clustering.server.infinispan.dispatcher.CacheContainerCommandDispatcherFactory;
+import org.wildfly.clustering.server.infinispan.dispatcher.ChannelEmbeddedCacheManagerCommandDispatcherFactoryConfiguration;
+import org.wildfly.clustering.server.infinispan.dispatcher.EmbeddedCacheManagerCommandDispatcherFactory;
+import org.wildfly.clustering.server.infinispan.dispatcher.LocalEmbeddedCacheManagerCommandDispatcherFactoryConfiguration;
+import org.wildfly.clustering.server.jgroups.ChannelGroupMember;
+import org.wildfly.clustering.server.jgroups.dispatcher.ChannelCommandDispatcherFactory;
+import org.wildfly.clustering.server.jgroups.dispatcher.JChannelCommandDispatcherFactory;
+import org.wildfly.clustering.session.ImmutableSession;
+import org.wildfly.clustering.session.SessionManager;
+import org.wildfly.clustering.session.SessionManagerConfiguration;
+import org.wildfly.clustering.session.SessionManagerFactory;
+import org.wildfly.clustering.vertx.web.SessionAttributeMarshaller;
+import org.wildfly.clustering.vertx.web.VertxSessionIdentifierFactory;
+
+/**
+ * An embedded cache container, with its JGroups channel, thread pools, and command dispatcher factory, shared by all session stores of a JVM created for the same class loader and Infinispan configuration resource.
+ * Consequently, a JVM joins a given cluster once, regardless of the number of its session stores, e.g. one per verticle instance.
+ * Shared containers are reference counted, and stopped when released by their last session store.
+ * Likewise, each deployment cache, along with its session manager factory and session manager, is shared by all session stores with the same deployment name, and stopped when released by the last of these.
+ * Consequently, a JVM schedules expiration, registers cache listeners, and registers commands once per deployment, regardless of the number of its session stores.
+ */
+class SharedCacheContainer {
+	// Guarded by itself
+	private static final Map<Map.Entry<ClassLoader, String>, SharedCacheContainer> CONTAINERS = new HashMap<>();
+
+	/**
+	 * Acquires a reference to the cache container for the specified class loader and configuration resource, creating and starting it if necessary.
+	 * @param loader the class loader of a session store
+	 * @param url the location of an Infinispan configuration resource
+	 * @return a reference to a shared cache container, which must be released via {@link #close()}.
+	 * @throws Exception if the cache container could not be started
+	 */
+	static SharedCacheContainer acquire(ClassLoader loader, URL url) throws Exception {
+		// N.B. URL.equals(...) may perform name resolution
+		Map.Entry<ClassLoader, String> key = Map.entry(loader, url.toExternalForm());
+		SharedCacheContainer container;
+		synchronized (CONTAINERS) {
+			container = CONTAINERS.computeIfAbsent(key, k -> new SharedCacheContainer(loader, url, () -> CONTAINERS.remove(k)));
+			container.references += 1;
+		}
+		// Start outside of global monitor, so that containers for different resources connect concurrently
+		try {
+			container.start();
+		} catch (Exception | Error e) {
+			container.close();
+			throw e;
+		}
+		return container;
+	}
+
+	private final ClassLoader loader;
+	private final URL url;
+	private final Runnable removeTask;
+	// Guarded by this
+	private final Deque<Runnable> closeTasks = new LinkedList<>();
+	private EmbeddedCacheManager container;
+	private CacheContainerCommandDispatcherFactory commandDispatcherFactory;
+	// Guarded by CONTAINERS
+	private int references = 0;
+	// Guarded by this
+	private final Map<String, Deployment> deployments = new HashMap<>();
+
+	private SharedCacheContainer(ClassLoader loader, URL url, Runnable removeTask) {
+		this.loader = loader;
+		this.url = url;
+		this.removeTask = removeTask;
+	}
+
+	private synchronized void start() throws Exception {
+		if (this.container != null) {
+			// Already started by a previous reference
+			return;
+		}
+		Deque<Runnable> closeTasks = this.closeTasks;
+		try {
+			ConfigurationBuilderHolder holder = new ParserRegistry(this.loader, false, System.getProperties()).parse(this.url);
+			GlobalConfigurationBuilder global = holder.getGlobalConfigurationBuilder();
+			String containerName = global.cacheContainer().name();
+			TransportConfiguration transport = Optional.of(global.transport().create()).filter(t -> t.nodeName() != null).orElseGet(() -> global.transport().nodeName(Util.generateLocalName()).create());
+
+			JGroupsChannelConfigurator configurator = (transport.transport() != null) ? new JChannelConfigurator(transport, this.loader) : null;
+			JChannel channel = (configurator != null) ? configurator.createChannel(transport.nodeName()) : null;
+			if (channel != null) {
+				InfinispanSessionStore.LOGGER.debugf("Connecting %s to %s", transport.nodeName(), transport.clusterName());
+				channel.connect(transport.clusterName());
+				InfinispanSessionStore.LOGGER.debugf("Connected %s to %s with view: %s", channel.getName(), channel.getClusterName(), channel.view().getMembers());
+				closeTasks.add(() -> {
+					InfinispanSessionStore.LOGGER.debugf("Disconnecting %s from %s with view: %s", channel.getName(), channel.getClusterName(), channel.view().getMembers());
+					try {
+						channel.disconnect();
+						InfinispanSessionStore.LOGGER.debugf("Disconnected %s from %s", transport.nodeName(), transport.clusterName());
+					} finally {
+						channel.close();
+					}
+				});
+
+				GlobalJmxConfiguration jmx = global.jmx().create();
+				if (jmx.enabled()) {
+					ObjectName prefix = new ObjectName(jmx.domain(), "manager", ObjectName.quote(containerName));
+					JmxConfigurator.registerChannel(channel, ManagementFactory.getPlatformMBeanServer(), prefix, transport.clusterName(), true);
+					closeTasks.add(() -> {
+						try {
+							JmxConfigurator.unregisterChannel(channel, ManagementFactory.getPlatformMBeanServer(), prefix, transport.clusterName());
+						} catch (Exception e) {
+							InfinispanSessionStore.LOGGER.warn(e.getLocalizedMessage(), e);
+						}
+					});
+				}
+
+				Properties properties = new Properties();
+				properties.put(JGroupsTransport.CHANNEL_CONFIGURATOR, new ForkChannelConfigurator(channel, containerName));
+				global.transport().withProperties(properties);
+			}
+
+			ChannelCommandDispatcherFactory channelCommandDispatcherFactory = (channel != null) ? new JChannelCommandDispatcherFactory(new JChannelCommandDispatcherFactory.Configuration() {
+				@Override
+				public JChannel getChannel() {
+					return channel;
+				}
+
+				@Override
+				public ByteBufferMarshaller getMarshaller() {
+					return this.getMarshallerFactory().apply(JChannelCommandDispatcherFactory.class.getClassLoader());
+				}
+
+				@Override
+				public Function<ClassLoader, ByteBufferMarshaller> getMarshallerFactory() {
+					return SessionAttributeMarshaller.PROTOSTREAM::apply;
+				}
+
+				@Override
+				public Predicate<Message> getUnknownForkPredicate() {
+					return Predicate.not(Message::hasPayload);
+				}
+			}) : null;
+			if (channelCommandDispatcherFactory != null) {
+				closeTasks.add(channelCommandDispatcherFactory::close);
+			}
+
+			global.classLoader(this.loader)
+					.shutdown().hookBehavior(ShutdownHookBehavior.DONT_REGISTER)
+					.blockingThreadPool().threadFactory(new DefaultBlockingThreadFactory(BlockingManager.class))
+					.expirationThreadPool().threadFactory(new DefaultBlockingThreadFactory(ExpirationManager.class))
+					.listenerThreadPool().threadFactory(new DefaultBlockingThreadFactory(ListenerInvocation.class))
+					.nonBlockingThreadPool().threadFactory(new DefaultNonBlockingThreadFactory(NonBlockingManager.class))
+					.serialization()
+						.marshaller(new UserMarshaller(MediaTypes.WILDFLY_PROTOSTREAM, SessionAttributeMarshaller.PROTOSTREAM.apply(this.loader)))
+						// Register dummy serialization context initializer, to bypass service loading in org.infinispan.marshall.protostream.impl.SerializationContextRegistryImpl
+						// Otherwise marshaller auto-detection will not work
+						.addContextInitializer(new SerializationContextInitializer() {
+							@Override
+							public void registerMarshallers(SerializationContext context) {
+							}
+
+							@Override
+							public void registerSchema(SerializationContext context) {
+							}
+						})
+					.globalState().configurationStorage(ConfigurationStorage.IMMUTABLE).disable();
+
+			EmbeddedCacheManager container = new DefaultCacheManager(holder, false);
+			container.start();
+			closeTasks.add(container::stop);
+			this.container = container;
+
+			this.commandDispatcherFactory = (channelCommandDispatcherFactory != null) ? new EmbeddedCacheManagerCommandDispatcherFactory<>(new ChannelEmbeddedCacheManagerCommandDispatcherFactoryConfiguration() {
+				@Override
+				public GroupCommandDispatcherFactory<Address, ChannelGroupMember> getCommandDispatcherFactory() {
+					return channelCommandDispatcherFactory;
+				}
+
+				@Override
+				public EmbeddedCacheManager getCacheContainer() {
+					return container;
+				}
+			}) : new EmbeddedCacheManagerCommandDispatcherFactory<>(new LocalEmbeddedCacheManagerCommandDispatcherFactoryConfiguration() {
+				@Override
+				public EmbeddedCacheManager getCacheContainer() {
+					return container;
+				}
+			});
+		} catch (Exception | Error e) {
+			// Undo any partial startup
+			Runner.of(closeTasks::descendingIterator).run();
+			closeTasks.clear();
+			this.container = null;
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the shared cache container.
+	 * @return an embedded cache container
+	 */
+	synchronized EmbeddedCacheManager getCacheContainer() {
+		return this.container;
+	}
+
+	/**
+	 * Returns the command dispatcher factory of the shared cache container.
+	 * @return a command dispatcher factory
+	 */
+	synchronized CacheContainerCommandDispatcherFactory getCommandDispatcherFactory() {
+		return this.commandDispatcherFactory;
+	}
+
+	/**
+	 * Acquires a reference to the session manager factory for the specified deployment, defining and starting its cache if necessary.
+	 * The returned factory returns a single session manager, shared by all session stores of this deployment, which is created and started on behalf of the first of these, and stopped when the deployment is released by the last of these.
+	 * @param deploymentName a deployment name
+	 * @param configurationFactory a factory for the cache configuration, used only by the first session store of this deployment
+	 * @param factory a factory for the session manager factory of a started cache, used only by the first session store of this deployment
+	 * @return a shared session manager factory, which must be released via {@link #releaseSessionManagerFactory(String)}.
+	 */
+	SessionManagerFactory<Context, Void> acquireSessionManagerFactory(String deploymentName, Supplier<Configuration> configurationFactory, Function<Cache<?, ?>, SessionManagerFactory<Context, Void>> factory) {
+		Deployment deployment;
+		synchronized (this) {
+			deployment = this.deployments.computeIfAbsent(deploymentName, name -> new Deployment(name, configurationFactory.get()));
+			deployment.references += 1;
+		}
+		// Start outside of monitor, so that the caches of different deployments await their initial state transfer concurrently
+		// This reference prevents the deployment from being closed by a concurrent release
+		try {
+			deployment.start(factory);
+		} catch (RuntimeException | Error e) {
+			this.releaseSessionManagerFactory(deploymentName);
+			throw e;
+		}
+		return new SessionManagerFactory<>() {
+			@Override
+			public SessionManager<Void> createSessionManager(SessionManagerConfiguration<Context> configuration) {
+				return deployment.getSessionManager(configuration);
+			}
+
+			@Override
+			public void close() {
+				// Closed via releaseSessionManagerFactory(...)
+			}
+		};
+	}
+
+	/**
+	 * Releases a reference to the session manager factory for the specified deployment, stopping its session manager, closing the factory, and stopping its cache, if this was its last reference.
+	 * @param deploymentName a deployment name
+	 */
+	synchronized void releaseSessionManagerFactory(String deploymentName) {
+		Deployment deployment = this.deployments.get(deploymentName);
+		deployment.references -= 1;
+		if (deployment.references == 0) {
+			this.deployments.remove(deploymentName);
+			deployment.close();
+		}
+	}
+
+	/**
+	 * Releases this reference to the shared cache container, stopping it if this was its last reference.
+	 */
+	void close() {
+		synchronized (CONTAINERS) {
+			this.references -= 1;
+			if (this.references > 0) {
+				return;
+			}
+			this.removeTask.run();
+		}
+		synchronized (this) {
+			Runner.of(this.closeTasks::descendingIterator).run();
+			this.closeTasks.clear();
+		}
+	}
+
+	/**
+	 * The cache, session manager factory, and session manager of a deployment, shared by its session stores.
+	 */
+	private class Deployment {
+		private final String name;
+		// Guarded by this
+		private final Deque<Runnable> closeTasks = new LinkedList<>();
+		// Guarded by SharedCacheContainer.this
+		private int references = 0;
+		// Guarded by this
+		private SessionManagerFactory<Context, Void> factory;
+		private SessionManager<Void> manager;
+
+		Deployment(String name, Configuration configuration) {
+			this.name = name;
+			SharedCacheContainer.this.container.defineConfiguration(name, configuration);
+			this.closeTasks.add(() -> SharedCacheContainer.this.container.undefineConfiguration(name));
+		}
+
+		synchronized void start(Function<Cache<?, ?>, SessionManagerFactory<Context, Void>> factory) {
+			if (this.factory != null) {
+				// Already started by a previous reference
+				return;
+			}
+			Cache<?, ?> cache = SharedCacheContainer.this.container.getCache(this.name);
+			this.closeTasks.add(cache::stop);
+			cache.start();
+			SessionManagerFactory<Context, Void> sessionManagerFactory = factory.apply(cache);
+			this.closeTasks.add(sessionManagerFactory::close);
+			this.factory = sessionManagerFactory;
+		}
+
+		synchronized SessionManager<Void> getSessionManager(SessionManagerConfiguration<Context> configuration) {
+			if (this.manager == null) {
+				// Create from a configuration independent of the session store that happens to be first, since the manager outlives it
+				SessionManager<Void> manager = this.factory.createSessionManager(new SessionManagerConfiguration<>() {
+					private final Supplier<String> identifierFactory = new VertxSessionIdentifierFactory();
+					private final Optional<Duration> maxIdle = configuration.getMaxIdle();
+					// Only used outside of any context
+					private final Context context = configuration.getContext();
+
+					@Override
+					public Supplier<String> getIdentifierFactory() {
+						return this.identifierFactory;
+					}
+
+					@Override
+					public Consumer<ImmutableSession> getExpirationListener() {
+						return Consumer.of();
+					}
+
+					@Override
+					public Optional<Duration> getMaxIdle() {
+						return this.maxIdle;
+					}
+
+					@Override
+					public Context getContext() {
+						// Use the context of the calling session store, if any
+						Context current = Vertx.currentContext();
+						return (current != null) ? current : this.context;
+					}
+				});
+				manager.start();
+				this.closeTasks.add(manager::stop);
+				this.manager = new SharedSessionManager(manager);
+			}
+			return this.manager;
+		}
+
+		synchronized void close() {
+			Runner.of(this.closeTasks::descendingIterator).run();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web.infinispan.embedded;
+
+import java.util.concurrent.CompletionStage;
+
+import org.wildfly.clustering.function.Supplier;
+import org.wildfly.clustering.session.ImmutableSession;
+import org.wildfly.clustering.session.Session;
+import org.wildfly.clustering.session.SessionManager;
+import org.wildfly.clustering.session.SessionStatistics;
+
+/**
+ * A session manager shared by the session stores of a deployment, whose lifecycle is managed by that deployment, rather than by any of its session stores.
+ * Consequently, {@link #start()} and {@link #stop()} are no-ops.
+ */
+class SharedSessionManager implements SessionManager<Void> {
+
+	private final SessionManager<Void> manager;
+
+	/**
+	 * Creates a shared view of the specified session manager.
+	 * @param manager a started session manager
+	 */
+	SharedSessionManager(SessionManager<Void> manager) {
+		this.manager = manager;
+	}
+
+	@Override
+	public boolean isStarted() {
+		return this.manager.isStarted();
+	}
+
+	@Override
+	public void start() {
+		// Started by its deployment
+	}
+
+	@Override
+	public void stop() {
+		// Stopped by its deployment, once released by its last session store
+	}
+
+	@Override
+	public Supplier<String> getIdentifierFactory() {
+		return this.manager.getIdentifierFactory();
+	}
+
+	@Override
+	public CompletionStage<Session<Void>> createSessionAsync(String id) {
+		return this.manager.createSessionAsync(id);
+	}
+
+	@Override
+	public Session<Void> createSession(String id) {
+		return this.manager.createSession(id);
+	}
+
+	@Override
+	public CompletionStage<Session<Void>> findSessionAsync(String id) {
+		return this.manager.findSessionAsync(id);
+	}
+
+	@Override
+	public Session<Void> findSession(String id) {
+		return this.manager.findSession(id);
+	}
+
+	@Override
+	public CompletionStage<ImmutableSession> findImmutableSessionAsync(String id) {
+		return this.manager.findImmutableSessionAsync(id);
+	}
+
+	@Override
+	public ImmutableSession findImmutableSession(String id) {
+		return this.manager.findImmutableSession(id);
+	}
+
+	@Override
+	public Session<Void> getDetachedSession(String id) {
+		return this.manager.getDetachedSession(id);
+	}
+
+	@Override
+	public SessionStatistics getStatistics() {
+		return this.manager.getStatistics();
+	}
+
+	@Override
+	public String toString() {
+		return this.manager.toString();
+	}
+}
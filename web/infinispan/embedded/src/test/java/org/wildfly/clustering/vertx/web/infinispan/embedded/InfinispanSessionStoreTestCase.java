@@ -0,0 +1,92 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web.infinispan.embedded;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.SessionStore;
+
+import org.infinispan.configuration.cache.StorageType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.clustering.vertx.web.DistributableSessionManagerFactoryConfiguration;
+
+/**
+ * Unit test for {@link InfinispanSessionStore}.
+ */
+public class InfinispanSessionStoreTestCase {
+
+	private final Vertx vertx = Vertx.vertx();
+
+	@AfterEach
+	public void close() throws Exception {
+		await(this.vertx.close());
+	}
+
+	@Test
+	public void offHeap() throws Exception {
+		JsonObject options = new JsonObject()
+				.put(InfinispanSessionStore.RESOURCE, "infinispan-local.xml")
+				.put(InfinispanSessionStore.STORAGE, StorageType.OFF_HEAP.name());
+		SessionStore store = new InfinispanSessionStore().init(this.vertx, options);
+		try {
+			List<String> list = new ArrayList<>(List.of("bar", "baz"));
+
+			Session session = store.createSession(SessionHandler.DEFAULT_SESSION_TIMEOUT);
+			String id = session.id();
+			session.put("foo", "bar");
+			session.put("list", list);
+			await(store.put(session));
+
+			// Attributes are read from their marshalled, off-heap form
+			Session found = await(store.get(id));
+			assertThat(found).isNotNull();
+			assertThat(found.id()).isEqualTo(id);
+			assertThat((Object) found.get("foo")).isEqualTo("bar");
+			assertThat((Object) found.get("list")).isEqualTo(list);
+
+			found.remove("foo");
+			await(store.put(found));
+
+			found = await(store.get(id));
+			assertThat((Object) found.get("foo")).isNull();
+			assertThat((Object) found.get("list")).isEqualTo(list);
+
+			found.destroy();
+			await(store.delete(id));
+
+			assertThat(await(store.get(id))).isNull();
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void offHeapMaxActiveSessions() {
+		JsonObject options = new JsonObject()
+				.put(InfinispanSessionStore.RESOURCE, "infinispan-local.xml")
+				.put(InfinispanSessionStore.STORAGE, StorageType.OFF_HEAP.name())
+				.put(DistributableSessionManagerFactoryConfiguration.MAX_ACTIVE_SESSIONS, 100);
+
+		assertThatThrownBy(() -> new InfinispanSessionStore().init(this.vertx, options))
+				.isInstanceOf(IllegalStateException.class)
+				.hasCauseInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining(DistributableSessionManagerFactoryConfiguration.MAX_ACTIVE_SESSIONS);
+	}
+
+	private static <T> T await(Future<T> future) throws Exception {
+		return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web.infinispan.embedded;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Context;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.junit.jupiter.api.Test;
+import org.wildfly.clustering.function.Consumer;
+import org.wildfly.clustering.function.Function;
+import org.wildfly.clustering.function.Supplier;
+import org.wildfly.clustering.session.ImmutableSession;
+import org.wildfly.clustering.session.SessionManager;
+import org.wildfly.clustering.session.SessionManagerConfiguration;
+import org.wildfly.clustering.session.SessionManagerFactory;
+
+/**
+ * Unit test for {@link SharedCacheContainer}.
+ */
+public class SharedCacheContainerTestCase {
+	private static final String DEPLOYMENT_NAME = "deployment";
+
+	private final ClassLoader loader = SharedCacheContainerTestCase.class.getClassLoader();
+	private final URL url = this.loader.getResource("infinispan-local.xml");
+
+	@Test
+	public void shareContainer() throws Exception {
+		SharedCacheContainer shared1 = SharedCacheContainer.acquire(this.loader, this.url);
+		SharedCacheContainer shared2 = SharedCacheContainer.acquire(this.loader, this.url);
+
+		assertThat(shared2).isSameAs(shared1);
+		EmbeddedCacheManager container = shared1.getCacheContainer();
+		assertThat(shared2.getCacheContainer()).isSameAs(container);
+		assertThat(container.getStatus().allowInvocations()).isTrue();
+
+		shared1.close();
+
+		// Still referenced by second session store
+		assertThat(container.getStatus().allowInvocations()).isTrue();
+
+		shared2.close();
+
+		assertThat(container.getStatus().isTerminated()).isTrue();
+
+		// A subsequent reference starts a new container
+		SharedCacheContainer shared3 = SharedCacheContainer.acquire(this.loader, this.url);
+		try {
+			assertThat(shared3).isNotSameAs(shared1);
+			assertThat(shared3.getCacheContainer().getStatus().allowInvocations()).isTrue();
+		} finally {
+			shared3.close();
+		}
+	}
+
+	@Test
+	public void shareSessionManager() throws Exception {
+		SharedCacheContainer shared = SharedCacheContainer.acquire(this.loader, this.url);
+		try {
+			EmbeddedCacheManager container = shared.getCacheContainer();
+			Configuration template = container.getDefaultCacheConfiguration();
+			Supplier<Configuration> configurationFactory = () -> new ConfigurationBuilder().read(template).template(false).build();
+			TestSessionManagerFactory factory = new TestSessionManagerFactory();
+			AtomicInteger factories = new AtomicInteger();
+			Function<Cache<?, ?>, SessionManagerFactory<Context, Void>> factoryFactory = cache -> {
+				factories.incrementAndGet();
+				assertThat(cache.getStatus().allowInvocations()).isTrue();
+				return factory.getFactory();
+			};
+
+			SessionManagerFactory<Context, Void> factory1 = shared.acquireSessionManagerFactory(DEPLOYMENT_NAME, configurationFactory, factoryFactory);
+			SessionManagerFactory<Context, Void> factory2 = shared.acquireSessionManagerFactory(DEPLOYMENT_NAME, configurationFactory, factoryFactory);
+
+			assertThat(factories).hasValue(1);
+
+			SessionManager<Void> manager1 = factory1.createSessionManager(createConfiguration());
+			SessionManager<Void> manager2 = factory2.createSessionManager(createConfiguration());
+
+			// A single session manager, started once on behalf of both session stores
+			assertThat(manager2).isSameAs(manager1);
+			assertThat(factory.created).hasValue(1);
+			assertThat(factory.started).hasValue(1);
+
+			// Session stores do not control the lifecycle of the shared session manager
+			manager1.start();
+			manager1.stop();
+			factory1.close();
+
+			assertThat(factory.started).hasValue(1);
+			assertThat(factory.stopped).hasValue(0);
+			assertThat(factory.closed).hasValue(0);
+
+			shared.releaseSessionManagerFactory(DEPLOYMENT_NAME);
+
+			// Still referenced by second session store
+			assertThat(factory.stopped).hasValue(0);
+			assertThat(factory.closed).hasValue(0);
+			assertThat(container.getCacheConfiguration(DEPLOYMENT_NAME)).isNotNull();
+
+			shared.releaseSessionManagerFactory(DEPLOYMENT_NAME);
+
+			assertThat(factory.stopped).hasValue(1);
+			assertThat(factory.closed).hasValue(1);
+			assertThat(container.getCacheConfiguration(DEPLOYMENT_NAME)).isNull();
+		} finally {
+			shared.close();
+		}
+	}
+
+	private static SessionManagerConfiguration<Context> createConfiguration() {
+		return new SessionManagerConfiguration<>() {
+			@Override
+			public Supplier<String> getIdentifierFactory() {
+				return Supplier.of(null);
+			}
+
+			@Override
+			public Consumer<ImmutableSession> getExpirationListener() {
+				return Consumer.of();
+			}
+
+			@Override
+			public Optional<Duration> getMaxIdle() {
+				return Optional.empty();
+			}
+
+			@Override
+			public Context getContext() {
+				return null;
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<?> targetClass, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(targetClass.getClassLoader(), new Class<?>[] { targetClass }, (proxy, method, args) -> {
+			if (method.getDeclaringClass() == Object.class) {
+				return switch (method.getName()) {
+					case "equals" -> proxy == args[0];
+					case "hashCode" -> System.identityHashCode(proxy);
+					default -> targetClass.getSimpleName();
+				};
+			}
+			return handler.invoke(proxy, method, args);
+		});
+	}
+
+	static class TestSessionManagerFactory {
+		final AtomicInteger created = new AtomicInteger();
+		final AtomicInteger started = new AtomicInteger();
+		final AtomicInteger stopped = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+
+		SessionManagerFactory<Context, Void> getFactory() {
+			return proxy(SessionManagerFactory.class, (proxy, method, args) -> switch (method.getName()) {
+				case "createSessionManager" -> {
+					this.created.incrementAndGet();
+					yield this.createSessionManager();
+				}
+				case "close" -> {
+					this.closed.incrementAndGet();
+					yield null;
+				}
+				default -> throw new UnsupportedOperationException(method.getName());
+			});
+		}
+
+		private SessionManager<Void> createSessionManager() {
+			return proxy(SessionManager.class, (proxy, method, args) -> switch (method.getName()) {
+				case "start" -> {
+					this.started.incrementAndGet();
+					yield null;
+				}
+				case "stop" -> {
+					this.stopped.incrementAndGet();
+					yield null;
+				}
+				case "isStarted" -> this.started.get() > this.stopped.get();
+				default -> throw new UnsupportedOperationException(method.getName());
+			});
+		}
+	}
+}
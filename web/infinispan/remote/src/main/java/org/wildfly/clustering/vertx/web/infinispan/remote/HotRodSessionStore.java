@@ -38,14 +38,12 @@ import org.wildfly.clustering.cache.infinispan.remote.RemoteCacheConfiguration;
 import org.wildfly.clustering.cache.infinispan.remote.transaction.RemoteTransactionManagerLookup;
 import org.wildfly.clustering.function.BiFunction;
 import org.wildfly.clustering.function.Runner;
-import org.wildfly.clustering.marshalling.protostream.ClassLoaderMarshaller;
-import org.wildfly.clustering.marshalling.protostream.ProtoStreamByteBufferMarshaller;
-import org.wildfly.clustering.marshalling.protostream.SerializationContextBuilder;
 import org.wildfly.clustering.session.SessionManagerFactory;
 import org.wildfly.clustering.session.SessionManagerFactoryConfiguration;
 import org.wildfly.clustering.session.infinispan.remote.HotRodSessionManagerFactory;
 import org.wildfly.clustering.vertx.web.DistributableSessionManagerFactoryConfiguration;
 import org.wildfly.clustering.vertx.web.DistributableSessionStore;
+import org.wildfly.clustering.vertx.web.SessionAttributeMarshaller;
 
 /**
  * A remote Infinispan {@link SessionStore} for Vert.x.
@@ -87,6 +85,7 @@ public class HotRodSessionStore extends DistributableSessionStore {
 			super(name);
 		}
 	}
+	private static final System.Logger LOGGER = System.getLogger(HotRodSessionStore.class.getName());
 	private static final AtomicInteger COUNTER = new AtomicInteger(0);
 
 	/**
@@ -99,8 +98,7 @@ public class HotRodSessionStore extends DistributableSessionStore {
 	private HotRodSessionStore(Deque<Runnable> closeTasks) {
 		super(new BiFunction<>() {
 			@Override
-			public SessionManagerFactory<Context, Void> apply(Context context, JsonObject options) {
-				SessionManagerFactoryConfiguration<Void> factoryConfiguration = new DistributableSessionManagerFactoryConfiguration(context, options);
+			public SessionManagerFactory<Context, Void> apply(DistributableSessionManagerFactoryConfiguration factoryConfiguration, JsonObject options) {
 				ClassLoader loader = factoryConfiguration.getClassLoader();
 
 				URI uri = URI.create(Objects.requireNonNull(options.getString(HOTROD_URI)));
@@ -119,7 +117,7 @@ public class HotRodSessionStore extends DistributableSessionStore {
 				ThreadPoolExecutor executor = new DefaultAsyncExecutorFactory().getExecutor(properties);
 				Configuration configuration = ((uri != null) ? HotRodURI.create(uri).toConfigurationBuilder() : new ConfigurationBuilder())
 						.withProperties(properties)
-						.marshaller(new UserMarshaller(MediaTypes.WILDFLY_PROTOSTREAM, new ProtoStreamByteBufferMarshaller(SerializationContextBuilder.newInstance(ClassLoaderMarshaller.of(loader)).load(loader).build())))
+						.marshaller(new UserMarshaller(MediaTypes.WILDFLY_PROTOSTREAM, SessionAttributeMarshaller.PROTOSTREAM.apply(loader)))
 						.asyncExecutorFactory().factory(new ExecutorFactory() {
 							@Override
 							public ExecutorService getExecutor(Properties p) {
@@ -140,6 +138,10 @@ public class HotRodSessionStore extends DistributableSessionStore {
 				closeTasks.add(container::close);
 
 				String deploymentName = factoryConfiguration.getDeploymentName();
+				if (factoryConfiguration.getSizeThreshold().isPresent()) {
+					// The HotRod client does not near-cache transactional remote caches
+					LOGGER.log(System.Logger.Level.WARNING, "{0} is not supported by HotRod session stores and will be ignored for {1}", DistributableSessionManagerFactoryConfiguration.MAX_ACTIVE_SESSIONS, deploymentName);
+				}
 
 				container.getConfiguration().addRemoteCache(deploymentName, builder -> builder.forceReturnValues(false)
 						.nearCacheMode(NearCacheMode.DISABLED)
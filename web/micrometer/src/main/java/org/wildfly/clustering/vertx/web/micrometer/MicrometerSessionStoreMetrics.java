@@ -0,0 +1,86 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web.micrometer;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import org.wildfly.clustering.vertx.web.SessionStoreMetrics;
+
+/**
+ * Session store metrics recorded via Micrometer.
+ * All meters are tagged with the deployment name of their session store.
+ */
+public class MicrometerSessionStoreMetrics implements SessionStoreMetrics {
+	/** The prefix of the names of all session store meters */
+	public static final String PREFIX = "vertx.session.store.";
+	/** The name of the tag containing the deployment name of a session store */
+	public static final String DEPLOYMENT_TAG = "deployment";
+
+	private final Timer hits;
+	private final Timer misses;
+	private final Timer creations;
+	private final Timer commits;
+	private final Timer regenerations;
+	private final Timer destructions;
+	private final Timer closures;
+	private final DistributionSummary marshalledBytes;
+
+	/**
+	 * Creates session store metrics.
+	 * @param registry the registry of session store meters
+	 * @param deploymentName the deployment name of the session store
+	 */
+	public MicrometerSessionStoreMetrics(MeterRegistry registry, String deploymentName) {
+		Tags tags = Tags.of(DEPLOYMENT_TAG, deploymentName);
+		this.hits = Timer.builder(PREFIX + "load").description("Loads of existing sessions").tags(tags).tag("result", "hit").register(registry);
+		this.misses = Timer.builder(PREFIX + "load").description("Loads of existing sessions").tags(tags).tag("result", "miss").register(registry);
+		this.creations = Timer.builder(PREFIX + "create").description("Creation of new sessions").tags(tags).register(registry);
+		this.commits = Timer.builder(PREFIX + "commit").description("Commits of existing sessions").tags(tags).register(registry);
+		this.regenerations = Timer.builder(PREFIX + "regenerate").description("Commits of existing sessions whose identifier was regenerated").tags(tags).register(registry);
+		this.destructions = Timer.builder(PREFIX + "destroy").description("Invalidation of destroyed sessions").tags(tags).register(registry);
+		this.closures = Timer.builder(PREFIX + "close").description("Time spent waiting for in-flight sessions to close when closing a session store").tags(tags).register(registry);
+		this.marshalledBytes = DistributionSummary.builder(PREFIX + "marshalled").description("Marshalled size of session attributes").baseUnit("bytes").tags(tags).register(registry);
+	}
+
+	@Override
+	public void sessionLoaded(boolean found, long nanos) {
+		(found ? this.hits : this.misses).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void sessionCreated(long nanos) {
+		this.creations.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void sessionCommitted(long nanos) {
+		this.commits.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void sessionRegenerated(long nanos) {
+		this.regenerations.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void sessionDestroyed(long nanos) {
+		this.destructions.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void storeClosed(long nanos) {
+		this.closures.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void attributeMarshalled(long bytes) {
+		this.marshalledBytes.record(bytes);
+	}
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web.micrometer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+import org.kohsuke.MetaInfServices;
+import org.wildfly.clustering.vertx.web.SessionStoreMetrics;
+import org.wildfly.clustering.vertx.web.SessionStoreMetricsFactory;
+
+/**
+ * Creates session store metrics that publish to the default Micrometer registry of Vert.x, alongside its HTTP server metrics.
+ */
+@MetaInfServices(SessionStoreMetricsFactory.class)
+public class MicrometerSessionStoreMetricsFactory implements SessionStoreMetricsFactory {
+
+	@Override
+	public SessionStoreMetrics createMetrics(Vertx vertx, String deploymentName) {
+		MeterRegistry registry = BackendRegistries.getDefaultNow();
+		// Micrometer metrics may not be the configured metrics implementation
+		return (registry != null) ? new MicrometerSessionStoreMetrics(registry, deploymentName) : SessionStoreMetrics.NONE;
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * Caches a value per class loader, e.g. to avoid repeated service loading when many session stores are created for the same class loader.
+ * Neither class loaders nor cached values are strongly referenced by this cache, thus cached values are retained only while referenced elsewhere, i.e. by a session store, and do not prevent their class loader from being unloaded.
+ * @param <V> the cached value type
+ */
+class ClassLoaderCache<V> implements Function<ClassLoader, V> {
+
+	private final Function<ClassLoader, V> factory;
+	// Guarded by this
+	private final Map<ClassLoader, Reference<V>> values = new WeakHashMap<>();
+
+	/**
+	 * Creates a cache of values created by the specified factory.
+	 * @param factory a factory for creating the value for a given class loader
+	 */
+	ClassLoaderCache(Function<ClassLoader, V> factory) {
+		this.factory = factory;
+	}
+
+	@Override
+	public synchronized V apply(ClassLoader loader) {
+		Reference<V> reference = this.values.get(loader);
+		V value = (reference != null) ? reference.get() : null;
+		if (value == null) {
+			value = this.factory.apply(loader);
+			this.values.put(loader, new WeakReference<>(value));
+		}
+		return value;
+	}
+}
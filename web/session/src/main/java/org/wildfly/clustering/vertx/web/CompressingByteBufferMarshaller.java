@@ -0,0 +1,97 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.wildfly.clustering.marshalling.ByteBufferMarshaller;
+
+/**
+ * Decorates a marshaller such that marshalled objects whose size meets a given threshold are compressed via the Deflate algorithm.
+ * Marshalled objects are prefixed with a magic sequence followed by a header byte indicating whether or not they were compressed, so that compressed and uncompressed objects can coexist, e.g. following a change of threshold.
+ * Objects lacking the magic prefix, e.g. those marshalled prior to enabling compression, are read via the decorated marshaller.
+ */
+public class CompressingByteBufferMarshaller implements ByteBufferMarshaller {
+	// Distinguishes objects written by this marshaller from those written by the decorated marshaller
+	static final byte[] MAGIC = new byte[] { (byte) 0xFF, 'W', 'F', 'Z' };
+	static final int UNCOMPRESSED = 0;
+	static final int DEFLATED = 1;
+
+	private final ByteBufferMarshaller marshaller;
+	private final int threshold;
+
+	/**
+	 * Creates a compressing decorator of the specified marshaller.
+	 * @param marshaller the decorated marshaller
+	 * @param threshold the minimum size, in bytes, of a marshalled object to compress
+	 */
+	public CompressingByteBufferMarshaller(ByteBufferMarshaller marshaller, int threshold) {
+		this.marshaller = marshaller;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public boolean isMarshallable(Object object) {
+		return this.marshaller.isMarshallable(object);
+	}
+
+	@Override
+	public Object readFrom(InputStream input) throws IOException {
+		PushbackInputStream pushbackInput = new PushbackInputStream(input, MAGIC.length);
+		byte[] prefix = pushbackInput.readNBytes(MAGIC.length);
+		if (!Arrays.equals(prefix, MAGIC)) {
+			// Not written by this marshaller
+			pushbackInput.unread(prefix);
+			return this.marshaller.readFrom(pushbackInput);
+		}
+		int header = pushbackInput.read();
+		switch (header) {
+			case UNCOMPRESSED:
+				return this.marshaller.readFrom(pushbackInput);
+			case DEFLATED:
+				Inflater inflater = new Inflater();
+				try {
+					return this.marshaller.readFrom(new InflaterInputStream(pushbackInput, inflater));
+				} finally {
+					// Release native resources eagerly
+					inflater.end();
+				}
+			default:
+				throw new IOException(String.format("Unexpected header: %d", header));
+		}
+	}
+
+	@Override
+	public void writeTo(OutputStream output, Object object) throws IOException {
+		// Marshalled size is not known in advance
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		this.marshaller.writeTo(bytes, object);
+		output.write(MAGIC);
+		if (bytes.size() < this.threshold) {
+			output.write(UNCOMPRESSED);
+			bytes.writeTo(output);
+		} else {
+			output.write(DEFLATED);
+			Deflater deflater = new Deflater();
+			try {
+				DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(output, deflater);
+				bytes.writeTo(deflaterOutput);
+				// Do not close the decorated stream
+				deflaterOutput.finish();
+			} finally {
+				deflater.end();
+			}
+		}
+	}
+}
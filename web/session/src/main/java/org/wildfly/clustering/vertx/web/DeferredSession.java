@@ -0,0 +1,185 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+import org.wildfly.clustering.session.Session;
+import org.wildfly.clustering.session.SessionManager;
+import org.wildfly.clustering.session.SessionMetaData;
+
+/**
+ * A new Vert.x session whose creation via its session manager is deferred until the session is closed.
+ * Until its identifier is sent to the client, no other request can reference this session.
+ * Consequently, its attributes are retained locally, and the session is created by a worker thread when closed, rather than by the event loop.
+ * Since the session is created asynchronously, typically after the response containing its identifier was sent, a subsequent request for this session handled by another member may arrive before the session exists.
+ */
+public class DeferredSession implements VertxSession {
+
+	private final SessionManager<Void> manager;
+	private final io.vertx.core.Context context;
+	private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+	private final AtomicReference<Runnable> closeTask;
+	private final Promise<Void> closed = Promise.promise();
+	private final Instant startTime = Instant.now();
+	private final String originalId;
+	private final long timeout;
+	private final UnaryOperator<Map<String, Object>> attributesDecorator;
+	private volatile String id;
+	private volatile boolean destroyed = false;
+
+	/**
+	 * Creates a new Vert.x session whose creation is deferred until closed.
+	 * @param manager the manager that will create this session
+	 * @param context the context used to create this session
+	 * @param id the identifier of the new session
+	 * @param timeout the maximum inactive interval of the new session, in milliseconds
+	 * @param closeTask a task to invoke on {@link VertxSession#close()}.
+	 * @param attributesDecorator a decorator of the attributes of the created session
+	 */
+	public DeferredSession(SessionManager<Void> manager, io.vertx.core.Context context, String id, long timeout, Runnable closeTask, UnaryOperator<Map<String, Object>> attributesDecorator) {
+		this.manager = manager;
+		this.context = context;
+		this.originalId = id;
+		this.id = id;
+		this.timeout = timeout;
+		this.closeTask = new AtomicReference<>(closeTask);
+		this.attributesDecorator = attributesDecorator;
+	}
+
+	@Override
+	public io.vertx.ext.web.Session regenerateId() {
+		// Nothing to copy, since this session was not yet created
+		this.id = this.manager.getIdentifierFactory().get();
+		return this;
+	}
+
+	@Override
+	public String id() {
+		return this.id;
+	}
+
+	@Override
+	public io.vertx.ext.web.Session put(String key, Object value) {
+		if (value != null) {
+			this.attributes.put(key, value);
+		} else {
+			this.attributes.remove(key);
+		}
+		return this;
+	}
+
+	@Override
+	public io.vertx.ext.web.Session putIfAbsent(String key, Object value) {
+		if (value != null) {
+			this.attributes.putIfAbsent(key, value);
+		}
+		return this;
+	}
+
+	@Override
+	public io.vertx.ext.web.Session computeIfAbsent(String key, java.util.function.Function<String, Object> mappingFunction) {
+		this.attributes.computeIfAbsent(key, mappingFunction);
+		return this;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T get(String key) {
+		return (T) this.attributes.get(key);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T remove(String key) {
+		return (T) this.attributes.remove(key);
+	}
+
+	@Override
+	public Map<String, Object> data() {
+		return this.attributes;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.attributes.isEmpty();
+	}
+
+	@Override
+	public long lastAccessed() {
+		return this.startTime.toEpochMilli();
+	}
+
+	@Override
+	public void destroy() {
+		this.destroyed = true;
+		Runnable closeTask = this.closeTask.getAndSet(null);
+		if (closeTask != null) {
+			try {
+				this.attributes.clear();
+			} finally {
+				closeTask.run();
+				this.closed.tryComplete();
+			}
+		}
+	}
+
+	@Override
+	public boolean isDestroyed() {
+		return this.destroyed;
+	}
+
+	@Override
+	public boolean isRegenerated() {
+		return !this.id.equals(this.originalId);
+	}
+
+	@Override
+	public String oldId() {
+		return this.originalId;
+	}
+
+	@Override
+	public long timeout() {
+		return this.timeout;
+	}
+
+	@Override
+	public Future<Void> closeAsync() {
+		// Create this session via a worker thread, if not already closed or destroyed
+		Runnable closeTask = this.closeTask.getAndSet(null);
+		if (closeTask != null) {
+			// Exit via the worker thread, since the store may be closed, i.e. awaiting this exit, by the event loop
+			this.context.<Void>executeBlocking(() -> {
+				try {
+					return this.create();
+				} finally {
+					closeTask.run();
+				}
+			}, false).onComplete(this.closed::succeed, this.closed::fail);
+		}
+		return this.closed.future();
+	}
+
+	private Void create() {
+		try (Session<Void> session = this.manager.createSession(this.id)) {
+			SessionMetaData metaData = session.getMetaData();
+			metaData.setMaxIdle(Duration.ofMillis(this.timeout));
+			if (!this.attributes.isEmpty()) {
+				this.attributesDecorator.apply(session.getAttributes()).putAll(this.attributes);
+			}
+			metaData.setLastAccess(this.startTime, Instant.now());
+		}
+		return null;
+	}
+}
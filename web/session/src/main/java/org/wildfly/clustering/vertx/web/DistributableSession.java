@@ -6,142 +6,373 @@ package org.wildfly.clustering.vertx.web;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
+
+import jdk.jfr.EventType;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
 
-import org.wildfly.clustering.function.Consumer;
-import org.wildfly.clustering.function.Function;
-import org.wildfly.clustering.function.Predicate;
-import org.wildfly.clustering.server.util.BlockingReference;
-import org.wildfly.clustering.session.ImmutableSession;
 import org.wildfly.clustering.session.ImmutableSessionMetaData;
 import org.wildfly.clustering.session.Session;
 import org.wildfly.clustering.session.SessionManager;
 import org.wildfly.clustering.session.SessionMetaData;
+import org.wildfly.clustering.vertx.web.handler.UserHolderChangeDetector;
 
 /**
  * A distributable Vert.x session.
+ * Any blocking operations required to commit, invalidate, or regenerate the identifier of this session are performed by a worker thread.
+ * Attribute accessors do not allocate, and only contend with mutations of the decorated session, and with its replacement, when its identifier is regenerated.
+ * Optionally, attributes read by a request are cached for the duration of that request.
+ * Concurrent requests for the same session on this node share the same referenced session, which is closed when the last request completes.
+ * Mutations of the shared session, including those performed when each request completes, are serialized via the write lock of its reference.
+ * If destroyed by any request, the shared session appears destroyed to all requests, and is invalidated when the last request completes.
+ * Optionally, mutable attributes read by a request are only written if their marshalled form changed by the end of that request.
+ * If so, a user holder attribute is likewise only written if its user was replaced, or changed, as determined by a worker thread when this session is closed.
  */
 public class DistributableSession implements VertxSession {
+	// Placeholder for a cached attribute that does not exist
+	private static final Object ABSENT = new Object();
+	private static final EventType LOCK_EVENT_TYPE = EventType.getEventType(SessionLockEvent.class);
 
 	private final SessionManager<Void> manager;
-	private final BlockingReference<Session<Void>> reference;
+	private final io.vertx.core.Context context;
+	private final SessionReference reference;
+	private final StampedLock lock;
 	private final AtomicReference<Runnable> closeTask;
+	private final Promise<Void> closed = Promise.promise();
 	private final Instant startTime;
 	private final String originalId;
+	private final long timeout;
+	private final Duration lastAccessThreshold;
+	private final SessionAttributeChangeDetector changeDetector;
+	private final Map<String, byte[]> digests;
+	private final Map<String, byte[]> userDigests;
+	private volatile boolean untracked = false;
+	private volatile Map<String, Object> cache;
+	private volatile String id;
 
 	/**
-	 * Creates a distributable Vert.x session backed by the specified session.
+	 * Creates a distributable Vert.x session backed by the specified session reference, acquired on behalf of this session.
 	 * @param manager the manager of the specified session
-	 * @param session the decorated session
+	 * @param context the context used to close this session
+	 * @param reference a reference to the decorated session
 	 * @param closeTask a task to invoke on {@link VertxSession#close()}.
+	 * @param cacheAttributes indicates whether attributes read by this session should be cached until this session is closed
+	 * @param lastAccessThreshold the minimum duration since the persisted last access time of this session before it is updated
+	 * @param changeDetector the change detector for mutable attributes, and for the users of user holder attributes, read by this session, or null, if change detection is disabled
 	 */
-	public DistributableSession(SessionManager<Void> manager, Session<Void> session, Runnable closeTask) {
+	public DistributableSession(SessionManager<Void> manager, io.vertx.core.Context context, SessionReference reference, Runnable closeTask, boolean cacheAttributes, Duration lastAccessThreshold, SessionAttributeChangeDetector changeDetector) {
 		this.manager = manager;
-		this.reference = BlockingReference.of(session);
+		this.lastAccessThreshold = lastAccessThreshold;
+		this.changeDetector = changeDetector;
+		this.digests = (changeDetector != null) ? new ConcurrentHashMap<>() : null;
+		this.userDigests = (changeDetector != null) ? new ConcurrentHashMap<>() : null;
+		this.cache = cacheAttributes ? new ConcurrentHashMap<>() : null;
+		this.context = context;
+		this.reference = reference;
+		this.lock = reference.getLock();
 		this.closeTask = new AtomicReference<>(closeTask);
-		this.startTime = session.getMetaData().getLastAccess().isPresent() ? session.getMetaData().getCreationTime() : Instant.now();
-		this.originalId = session.getId();
+		long stamp = this.lock.readLock();
+		try {
+			Session<Void> session = reference.get();
+			SessionMetaData metaData = session.getMetaData();
+			this.startTime = metaData.getLastAccess().isPresent() ? metaData.getCreationTime() : Instant.now();
+			// Maximum inactive interval cannot change during the lifespan of this session
+			this.timeout = metaData.getMaxIdle().orElse(Duration.ZERO).toMillis();
+			this.originalId = session.getId();
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+		this.id = this.originalId;
 	}
 
 	@Override
 	public io.vertx.ext.web.Session regenerateId() {
-		String id = this.manager.getIdentifierFactory().get();
-		this.reference.getWriter(ImmutableSession.VALID).update(currentSession -> {
-			SessionMetaData currentMetaData = currentSession.getMetaData();
-			Map<String, Object> currentAttributes = currentSession.getAttributes();
+		// Defer creation of the session with the new identifier until this session is closed
+		this.id = this.manager.getIdentifierFactory().get();
+		this.invalidateCache();
+		return this;
+	}
+
+	private void regenerate(String id) {
+		SessionRegenerateEvent event = new SessionRegenerateEvent();
+		event.begin();
+		try {
+			Session<Void> currentSession;
+			Map<String, Object> currentAttributes;
+			long version;
+			long stamp = this.lock.readLock();
+			try {
+				currentSession = this.reference.get();
+				if (!currentSession.isValid() || this.reference.isDestroyed()) {
+					return;
+				}
+				version = this.reference.getVersion();
+				// Determining emptiness does not require deserialization of any attributes, while copying them does
+				// Copy undecorated attributes, to preserve any packed attributes as is
+				Map<String, Object> attributes = currentSession.getAttributes();
+				currentAttributes = attributes.isEmpty() ? Map.of() : Map.copyOf(attributes);
+			} finally {
+				this.lock.unlockRead(stamp);
+			}
+			// Create and populate the new session outside of the lock, since this may require remote invocations and marshalling, which would otherwise block other holders
 			Session<Void> newSession = this.manager.createSession(id);
+			// The session to invalidate, i.e. the replaced session, or the new session, if it was abandoned
+			Session<Void> obsoleteSession = newSession;
 			try {
-				newSession.getAttributes().putAll(currentAttributes);
-				SessionMetaData newMetaData = newSession.getMetaData();
-				currentMetaData.getMaxIdle().ifPresent(newMetaData::setMaxIdle);
-				currentMetaData.getLastAccess().ifPresent(newMetaData::setLastAccess);
-				currentSession.invalidate();
-				return newSession;
-			} catch (RuntimeException | Error e) {
-				newSession.invalidate();
-				throw e;
+				Map<String, Object> newAttributes = newSession.getAttributes();
+				if (!currentAttributes.isEmpty()) {
+					newAttributes.putAll(currentAttributes);
+				}
+				stamp = this.writeLock();
+				try {
+					// Abandon the new session if the current session was destroyed, or replaced, in the meantime
+					if ((this.reference.get() == currentSession) && currentSession.isValid() && !this.reference.isDestroyed()) {
+						if (this.reference.getVersion() != version) {
+							// Another holder mutated the session while we were copying, so copy its attributes again
+							Map<String, Object> attributes = currentSession.getAttributes();
+							for (String key : List.copyOf(newAttributes.keySet())) {
+								if (!attributes.containsKey(key)) {
+									newAttributes.remove(key);
+								}
+							}
+							newAttributes.putAll(attributes);
+						}
+						SessionMetaData currentMetaData = currentSession.getMetaData();
+						SessionMetaData newMetaData = newSession.getMetaData();
+						currentMetaData.getMaxIdle().ifPresent(newMetaData::setMaxIdle);
+						currentMetaData.getLastAccess().ifPresent(newMetaData::setLastAccess);
+						this.reference.set(newSession);
+						obsoleteSession = currentSession;
+						// Subsequent requests for the old identifier must not share the new session
+						this.reference.detach();
+					}
+				} finally {
+					this.unlockWrite(stamp);
+				}
 			} finally {
-				Consumer.close().accept(newSession.isValid() ? currentSession : newSession);
+				// Invalidate the obsolete session outside of the lock
+				try {
+					if (obsoleteSession.isValid()) {
+						obsoleteSession.invalidate();
+					}
+				} finally {
+					obsoleteSession.close();
+				}
 			}
-		});
-		return this;
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.sessionIdHash = this.originalId.hashCode();
+				event.newSessionIdHash = id.hashCode();
+				event.commit();
+			}
+		}
 	}
 
 	@Override
 	public String id() {
-		return this.reference.getReader().map(ImmutableSession.IDENTIFIER).get();
+		return this.id;
 	}
 
 	@Override
 	public io.vertx.ext.web.Session put(String key, Object value) {
-		this.reference.getReader().map(Session.ATTRIBUTES).map(Session.SET_ATTRIBUTE.composeUnary(Function.identity(), Function.of(Map.entry(key, value)))).get();
+		long stamp = this.writeLock();
+		try {
+			Map<String, Object> attributes = this.reference.getAttributes();
+			if (this.isSameUser(key, value, attributes)) {
+				// Defer to commit, which only writes the user holder if its user changed
+				return this;
+			}
+			if (value != null) {
+				attributes.put(key, value);
+			} else {
+				attributes.remove(key);
+			}
+		} finally {
+			this.unlockWrite(stamp);
+		}
+		this.invalidateCache(key);
+		this.forgetDigest(key);
 		return this;
 	}
 
 	@Override
 	public io.vertx.ext.web.Session putIfAbsent(String key, Object value) {
-		this.reference.getReader().map(Session.ATTRIBUTES).map(attributes -> attributes.putIfAbsent(key, value)).get();
+		if (value != null) {
+			long stamp = this.writeLock();
+			try {
+				this.reference.getAttributes().putIfAbsent(key, value);
+			} finally {
+				this.unlockWrite(stamp);
+			}
+			this.invalidateCache(key);
+		}
 		return this;
 	}
 
 	@Override
 	public io.vertx.ext.web.Session computeIfAbsent(String key, java.util.function.Function<String, Object> mappingFunction) {
-		this.reference.getReader().map(Session.ATTRIBUTES).map(attributes -> attributes.computeIfAbsent(key, mappingFunction)).get();
+		// Compute outside of the lock, which is not reentrant, since the mapping function may access this session
+		if (this.peek(key) == null) {
+			this.putIfAbsent(key, mappingFunction.apply(key));
+		}
 		return this;
 	}
 
+	private Object peek(Object key) {
+		long stamp = this.lock.readLock();
+		try {
+			return this.reference.getAttributes().get(key);
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T get(String key) {
-		return (T) this.reference.getReader().map(Session.ATTRIBUTES).map(ImmutableSession.GET_ATTRIBUTE.composeUnary(Function.identity(), Function.of(key))).get();
+		Map<String, Object> cache = this.cache;
+		if (cache == null) {
+			return (T) this.read(key);
+		}
+		Object value = cache.get(key);
+		if (value == null) {
+			// Populate atomically, so as not to race with invalidation by a concurrent mutation
+			value = cache.computeIfAbsent(key, this::load);
+		}
+		return (value != ABSENT) ? (T) value : null;
+	}
+
+	private Object read(String key) {
+		Object value = this.peek(key);
+		SessionAttributeChangeDetector changeDetector = this.changeDetector;
+		if ((changeDetector != null) && (value != null)) {
+			if (UserHolderChangeDetector.INSTANCE.isUserHolder(value)) {
+				if (!this.userDigests.containsKey(key)) {
+					// Digest user before it can be changed by this request
+					this.userDigests.putIfAbsent(key, UserHolderChangeDetector.INSTANCE.digest(value, changeDetector));
+				}
+			} else if (changeDetector.isMutable(value) && !this.digests.containsKey(key)) {
+				// Digest mutable attribute before it can be mutated by this request
+				this.digests.putIfAbsent(key, changeDetector.digest(value));
+			}
+		}
+		return value;
+	}
+
+	private Object load(String key) {
+		Object value = this.read(key);
+		return (value != null) ? value : ABSENT;
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T remove(String key) {
-		return (T) this.reference.getReader().map(Session.ATTRIBUTES).map(Session.REMOVE_ATTRIBUTE.composeUnary(Function.identity(), Function.of(key))).get();
+		long stamp = this.writeLock();
+		try {
+			return (T) this.reference.getAttributes().remove(key);
+		} finally {
+			this.unlockWrite(stamp);
+			this.invalidateCache(key);
+			this.forgetDigest(key);
+		}
 	}
 
 	@Override
 	public Map<String, Object> data() {
-		return this.reference.getReader().map(Session.ATTRIBUTES).get();
+		// Attributes may be mutated via the returned map, so stop caching attributes for the remainder of this request
+		this.cache = null;
+		// Nor can we track which mutable attributes were read
+		this.untracked = true;
+		return new LockingAttributes();
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return this.reference.getReader().map(ImmutableSession.ATTRIBUTES).map(ImmutableSession.ATTRIBUTE_NAMES).get().isEmpty();
+		long stamp = this.lock.readLock();
+		try {
+			return this.reference.getAttributes().isEmpty();
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
 	}
 
 	@Override
 	public long lastAccessed() {
-		return this.reference.getReader().map(ImmutableSession.METADATA).map(ImmutableSessionMetaData.LAST_ACCESS_TIME).get().toEpochMilli();
+		long stamp = this.lock.readLock();
+		try {
+			return ImmutableSessionMetaData.LAST_ACCESS_TIME.apply(this.reference.get().getMetaData()).toEpochMilli();
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	private void invalidateCache(String key) {
+		Map<String, Object> cache = this.cache;
+		if (cache != null) {
+			cache.remove(key);
+		}
+	}
+
+	// Indicates whether the specified user holder references the same user as the digested user holder for the specified key
+	private boolean isSameUser(String key, Object value, Map<String, Object> attributes) {
+		Map<String, byte[]> userDigests = this.userDigests;
+		if ((userDigests == null) || !UserHolderChangeDetector.INSTANCE.isUserHolder(value) || !userDigests.containsKey(key)) {
+			return false;
+		}
+		Object currentValue = attributes.get(key);
+		return UserHolderChangeDetector.INSTANCE.isUserHolder(currentValue) && UserHolderChangeDetector.INSTANCE.isSameUser(currentValue, value);
+	}
+
+	private void forgetDigest(String key) {
+		Map<String, byte[]> digests = this.digests;
+		if (digests != null) {
+			digests.remove(key);
+			this.userDigests.remove(key);
+		}
+	}
+
+	private void invalidateCache() {
+		Map<String, Object> cache = this.cache;
+		if (cache != null) {
+			cache.clear();
+		}
 	}
 
 	@Override
 	public void destroy() {
-		Runnable closeTask = this.closeTask.getAndSet(null);
-		try {
-			this.reference.getReader().read(invalidSession -> {
-				try (Session<Void> session = invalidSession) {
-					session.invalidate();
-				}
-			});
-		} finally {
-			if (closeTask != null) {
-				closeTask.run();
-			}
-		}
+		this.cache = null;
+		// Other requests sharing this session may still access it, so defer its invalidation until released by its last holder, i.e. via SessionStore.delete(...)
+		this.reference.destroy();
 	}
 
 	@Override
 	public boolean isDestroyed() {
-		return this.reference.getReader().map(ImmutableSession.VALID.negate().thenBox()).get();
+		if (this.reference.isDestroyed()) {
+			return true;
+		}
+		long stamp = this.lock.readLock();
+		try {
+			return !this.reference.get().isValid();
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
 	}
 
 	@Override
 	public boolean isRegenerated() {
-		return this.reference.getReader().map(ImmutableSession.IDENTIFIER).map(Predicate.equalTo(this.originalId).thenBox()).get();
+		return !this.id.equals(this.originalId);
 	}
 
 	@Override
@@ -151,22 +382,252 @@ public class DistributableSession implements VertxSession {
 
 	@Override
 	public long timeout() {
-		return this.reference.getReader().map(ImmutableSession.METADATA).map(ImmutableSessionMetaData.MAX_IDLE).get().orElse(Duration.ZERO).toMillis();
+		return this.timeout;
 	}
 
 	@Override
-	public void close() {
+	public Future<Void> closeAsync() {
+		this.cache = null;
 		Runnable closeTask = this.closeTask.getAndSet(null);
 		if (closeTask != null) {
+			this.reference.remove(this);
+			// Exit via the worker thread, since the store may be closed, i.e. awaiting this exit, by the event loop
+			this.context.<Void>executeBlocking(() -> {
+				try {
+					return this.commit();
+				} finally {
+					closeTask.run();
+				}
+			}, false).onComplete(this.closed::succeed, this.closed::fail);
+		}
+		return this.closed.future();
+	}
+
+	private Void commit() {
+		String id = this.id;
+		boolean regenerated = !id.equals(this.originalId);
+		SessionCommitEvent event = new SessionCommitEvent();
+		event.begin();
+		try {
+			if (regenerated && !this.reference.isDestroyed()) {
+				this.regenerate(id);
+			}
+		} finally {
 			try {
-				this.reference.getReader().read(completeSession -> {
-					try (Session<Void> session = completeSession) {
-						session.getMetaData().setLastAccess(this.startTime, Instant.now());
+				// Detect changed attributes outside of the write lock, since this requires marshalling
+				Map<String, Object> changedAttributes = this.findChangedAttributes();
+				// Serialize with mutations by other holders of this session
+				long stamp = this.writeLock();
+				try {
+					Session<Void> session = this.reference.get();
+					// A destroyed session is invalidated by its last holder
+					if (session.isValid() && !this.reference.isDestroyed()) {
+						SessionMetaData metaData = session.getMetaData();
+						Instant now = Instant.now();
+						// A regenerated session is a new session, whose last access time must always be persisted
+						if (regenerated || this.isLastAccessStale(metaData, now)) {
+							metaData.setLastAccess(this.startTime, now);
+						}
+						if (!changedAttributes.isEmpty()) {
+							Map<String, Object> attributes = this.reference.getAttributes();
+							for (Map.Entry<String, Object> entry : changedAttributes.entrySet()) {
+								String key = entry.getKey();
+								Object value = entry.getValue();
+								// Skip any attribute since replaced or removed by another holder
+								if (attributes.get(key) == value) {
+									attributes.put(key, value);
+								}
+							}
+						}
 					}
-				});
+				} finally {
+					this.unlockWrite(stamp);
+				}
+			} finally {
+				// Closes the session, if this was its last holder
+				this.reference.release();
+				event.end();
+				if (event.shouldCommit()) {
+					event.sessionIdHash = this.originalId.hashCode();
+					event.regenerated = regenerated;
+					event.commit();
+				}
+			}
+		}
+		return null;
+	}
+
+	private Map<String, Object> findChangedAttributes() {
+		SessionAttributeChangeDetector changeDetector = this.changeDetector;
+		if ((changeDetector == null) || this.reference.isDestroyed()) {
+			return Map.of();
+		}
+		Map<String, Object> changedAttributes = new HashMap<>();
+		if (this.untracked) {
+			// Conservatively write all mutable attributes
+			for (String key : this.keys()) {
+				Object value = this.peek(key);
+				if ((value != null) && changeDetector.isMutable(value)) {
+					changedAttributes.put(key, value);
+				}
+			}
+		} else {
+			for (Map.Entry<String, byte[]> entry : this.digests.entrySet()) {
+				String key = entry.getKey();
+				Object value = this.peek(key);
+				if ((value != null) && changeDetector.isChanged(value, entry.getValue())) {
+					changedAttributes.put(key, value);
+				}
+			}
+		}
+		for (Map.Entry<String, byte[]> entry : this.userDigests.entrySet()) {
+			String key = entry.getKey();
+			Object value = this.peek(key);
+			// Detect changes to a user that was not replaced
+			if (UserHolderChangeDetector.INSTANCE.isUserHolder(value) && UserHolderChangeDetector.INSTANCE.isChanged(value, entry.getValue(), changeDetector)) {
+				changedAttributes.put(key, value);
+			}
+		}
+		return changedAttributes;
+	}
+
+	private List<String> keys() {
+		long stamp = this.lock.readLock();
+		try {
+			return List.copyOf(this.reference.getAttributes().keySet());
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	// Acquires the write lock, emitting a lock event, if enabled, so as not to allocate otherwise
+	private long writeLock() {
+		if (!LOCK_EVENT_TYPE.isEnabled()) {
+			return this.lock.writeLock();
+		}
+		SessionLockEvent event = new SessionLockEvent();
+		event.begin();
+		long stamp = this.lock.writeLock();
+		event.end();
+		if (event.shouldCommit()) {
+			event.sessionIdHash = this.originalId.hashCode();
+			event.commit();
+		}
+		return stamp;
+	}
+
+	// Releases the write lock, recording a potential mutation of the referenced session
+	private void unlockWrite(long stamp) {
+		this.reference.mutated();
+		this.lock.unlockWrite(stamp);
+	}
+
+	private boolean isLastAccessStale(SessionMetaData metaData, Instant now) {
+		return LastAccessThreshold.isStale(this.lastAccessThreshold, metaData, now);
+	}
+
+	// A view of the attributes of the shared session, whose accessors and mutators are guarded by the lock of its reference
+	private class LockingAttributes extends AbstractMap<String, Object> {
+
+		@Override
+		public Object get(Object key) {
+			return DistributableSession.this.peek(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			long stamp = DistributableSession.this.lock.readLock();
+			try {
+				return DistributableSession.this.reference.getAttributes().containsKey(key);
+			} finally {
+				DistributableSession.this.lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public Object put(String key, Object value) {
+			long stamp = DistributableSession.this.writeLock();
+			try {
+				return DistributableSession.this.reference.getAttributes().put(key, value);
+			} finally {
+				DistributableSession.this.unlockWrite(stamp);
+			}
+		}
+
+		@Override
+		public Object remove(Object key) {
+			long stamp = DistributableSession.this.writeLock();
+			try {
+				return DistributableSession.this.reference.getAttributes().remove(key);
 			} finally {
-				closeTask.run();
+				DistributableSession.this.unlockWrite(stamp);
 			}
 		}
+
+		@Override
+		public boolean isEmpty() {
+			return DistributableSession.this.isEmpty();
+		}
+
+		@Override
+		public int size() {
+			long stamp = DistributableSession.this.lock.readLock();
+			try {
+				return DistributableSession.this.reference.getAttributes().size();
+			} finally {
+				DistributableSession.this.lock.unlockRead(stamp);
+			}
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			return new AbstractSet<>() {
+				@Override
+				public Iterator<Map.Entry<String, Object>> iterator() {
+					// Iterate over a snapshot, whose entries write through to this map
+					List<String> keys;
+					long stamp = DistributableSession.this.lock.readLock();
+					try {
+						keys = List.copyOf(DistributableSession.this.reference.getAttributes().keySet());
+					} finally {
+						DistributableSession.this.lock.unlockRead(stamp);
+					}
+					Iterator<String> iterator = keys.iterator();
+					return new Iterator<>() {
+						private String current;
+
+						@Override
+						public boolean hasNext() {
+							return iterator.hasNext();
+						}
+
+						@Override
+						public Map.Entry<String, Object> next() {
+							String key = iterator.next();
+							this.current = key;
+							return new AbstractMap.SimpleEntry<>(key, LockingAttributes.this.get(key)) {
+								private static final long serialVersionUID = 5216442475155398787L;
+
+								@Override
+								public Object setValue(Object value) {
+									super.setValue(value);
+									return LockingAttributes.this.put(key, value);
+								}
+							};
+						}
+
+						@Override
+						public void remove() {
+							LockingAttributes.this.remove(this.current);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return LockingAttributes.this.size();
+				}
+			};
+		}
 	}
 }
@@ -7,14 +7,17 @@ package org.wildfly.clustering.vertx.web;
 import java.time.Duration;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.ServiceLoader;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 import io.vertx.core.Context;
 import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
 import io.vertx.core.internal.ContextInternal;
 import io.vertx.core.internal.deployment.Deployment;
@@ -38,19 +41,53 @@ public class DistributableSessionManagerFactoryConfiguration implements SessionM
 	public static final String GRANULARITY = "granularity";
 	/** The name of the property used to configure the session attribute marshaller */
 	public static final String MARSHALLER = "marshaller";
+	/** The name of the property used to configure the minimum marshalled size of a session attribute to compress, for compressing marshallers */
+	public static final String COMPRESSION_THRESHOLD = "compressionThreshold";
+	/** The default minimum marshalled size of a session attribute to compress, in bytes */
+	public static final int DEFAULT_COMPRESSION_THRESHOLD = 256;
 	/** The name of the property used to configure the maximum active sessions */
 	public static final String MAX_ACTIVE_SESSIONS = "maxActiveSessions";
 	/** The name of the property used to configure the idle timeout */
 	public static final String IDLE_TIMEOUT = "idleTimeout";
+	/** The name of the property used to configure the minimum duration between persisted last access times of a session */
+	public static final String LAST_ACCESS_THRESHOLD = "lastAccessThreshold";
+	/** The name of the property used to enable digest-based change detection of mutable session attributes */
+	public static final String ATTRIBUTE_CHANGE_DETECTION = "attributeChangeDetection";
+	/** The name of the property used to configure the maximum marshalled size of a packed session attribute, for the HYBRID granularity */
+	public static final String ATTRIBUTE_SIZE_THRESHOLD = "attributeSizeThreshold";
+	/** The default maximum marshalled size of a packed session attribute, in bytes */
+	public static final int DEFAULT_ATTRIBUTE_SIZE_THRESHOLD = 256;
+
+	private static final String DEFLATE = "DEFLATE";
+	// Avoid repeated service loading of immutability providers
+	private static final Function<ClassLoader, Immutability> IMMUTABILITY_FACTORY = new ClassLoaderCache<>(loader -> {
+		List<Immutability> loadedImmutabilities = new LinkedList<>();
+		for (Immutability loadedImmutability : ServiceLoader.load(Immutability.class, loader)) {
+			loadedImmutabilities.add(loadedImmutability);
+		}
+		return Immutability.composite(Stream.concat(Stream.of(Immutability.getDefault()), loadedImmutabilities.stream()).toList());
+	});
+
+	// Disables implicit replication of mutable session attributes when read
+	private static final Immutability IMMUTABLE = new Immutability() {
+		@Override
+		public boolean test(Object object) {
+			return true;
+		}
+	};
 
 	private final String deploymentName;
 	private final String serverName;
 	private final ClassLoader loader;
 	private final OptionalInt maxSize;
 	private final Optional<Duration> idleTimeout;
+	private final Duration lastAccessThreshold;
 	private final SessionAttributePersistenceStrategy persistenceStrategy;
 	private final ByteBufferMarshaller marshaller;
 	private final Immutability immutability;
+	private final Optional<SessionAttributeChangeDetector> changeDetector;
+	private final UnaryOperator<Map<String, Object>> attributesDecorator;
+	private final SessionStoreMetrics metrics;
 
 	/**
 	 * Creates a new session manager factory configuration.
@@ -68,14 +105,34 @@ public class DistributableSessionManagerFactoryConfiguration implements SessionM
 		this.serverName = deployment.map(Deployment::identifier).orElse(VertxOptions.DEFAULT_HA_GROUP);
 		this.maxSize = Optional.ofNullable(options.getInteger(MAX_ACTIVE_SESSIONS)).map(OptionalInt::of).orElse(OptionalInt.empty());
 		this.idleTimeout = Optional.ofNullable(options.getString(IDLE_TIMEOUT)).map(Duration::parse);
-		this.persistenceStrategy = SessionPersistenceGranularity.valueOf(options.getString(GRANULARITY, SessionPersistenceGranularity.ATTRIBUTE.name())).get();
-		Function<ClassLoader, ByteBufferMarshaller> marshallerFactory = SessionAttributeMarshaller.valueOf(options.getString(MARSHALLER, SessionAttributeMarshaller.JBOSS.name()));
-		this.marshaller = marshallerFactory.apply(this.loader);
-		List<Immutability> loadedImmutabilities = new LinkedList<>();
-		for (Immutability loadedImmutability : ServiceLoader.load(Immutability.class, this.loader)) {
-			loadedImmutabilities.add(loadedImmutability);
+		this.lastAccessThreshold = Optional.ofNullable(options.getString(LAST_ACCESS_THRESHOLD)).map(Duration::parse).orElse(Duration.ZERO);
+		SessionPersistenceGranularity granularity = SessionPersistenceGranularity.valueOf(options.getString(GRANULARITY, SessionPersistenceGranularity.ATTRIBUTE.name()));
+		this.persistenceStrategy = granularity.get();
+		Vertx vertx = context.owner();
+		String deploymentName = this.deploymentName;
+		this.metrics = vertx.isMetricsEnabled() ? ServiceLoader.load(SessionStoreMetricsFactory.class, this.loader).findFirst().map(factory -> factory.createMetrics(vertx, deploymentName)).orElse(SessionStoreMetrics.NONE) : SessionStoreMetrics.NONE;
+		// e.g. PROTOSTREAM+DEFLATE
+		String[] marshallerNames = options.getString(MARSHALLER, SessionAttributeMarshaller.JBOSS.name()).split("\\+", 2);
+		Function<ClassLoader, ByteBufferMarshaller> marshallerFactory = SessionAttributeMarshaller.valueOf(marshallerNames[0]);
+		// Uncompressed marshaller, used to size and digest session attributes
+		ByteBufferMarshaller marshaller = marshallerFactory.apply(this.loader);
+		if (marshallerNames.length > 1) {
+			if (!marshallerNames[1].equals(DEFLATE)) {
+				throw new IllegalArgumentException(marshallerNames[1]);
+			}
+			this.marshaller = this.meter(new CompressingByteBufferMarshaller(marshaller, options.getInteger(COMPRESSION_THRESHOLD, DEFAULT_COMPRESSION_THRESHOLD)));
+		} else {
+			this.marshaller = this.meter(marshaller);
 		}
-		this.immutability = Immutability.composite(Stream.concat(Stream.of(Immutability.getDefault()), loadedImmutabilities.stream()).toList());
+		int sizeThreshold = options.getInteger(ATTRIBUTE_SIZE_THRESHOLD, DEFAULT_ATTRIBUTE_SIZE_THRESHOLD);
+		this.attributesDecorator = (granularity == SessionPersistenceGranularity.HYBRID) ? attributes -> new PackedSessionAttributes(attributes, marshaller, sizeThreshold) : UnaryOperator.identity();
+		this.immutability = IMMUTABILITY_FACTORY.apply(this.loader);
+		this.changeDetector = options.getBoolean(ATTRIBUTE_CHANGE_DETECTION, Boolean.FALSE) ? Optional.of(new SessionAttributeChangeDetector(this.immutability, marshaller)) : Optional.empty();
+	}
+
+	private ByteBufferMarshaller meter(ByteBufferMarshaller marshaller) {
+		// Java Flight Recorder events may be enabled at any time
+		return new MeteredByteBufferMarshaller(marshaller, this.metrics);
 	}
 
 	@Override
@@ -103,6 +160,15 @@ public class DistributableSessionManagerFactoryConfiguration implements SessionM
 		return this.idleTimeout;
 	}
 
+	/**
+	 * Returns the minimum duration since the persisted last access time of a session before a subsequent request will update it.
+	 * Requests for a session within this duration will not update its last access time, trading expiration accuracy for fewer writes.
+	 * @return a duration, where zero indicates that every request will update the last access time of a session.
+	 */
+	public Duration getLastAccessThreshold() {
+		return this.lastAccessThreshold;
+	}
+
 	@Override
 	public ByteBufferMarshaller getMarshaller() {
 		return this.marshaller;
@@ -115,7 +181,32 @@ public class DistributableSessionManagerFactoryConfiguration implements SessionM
 
 	@Override
 	public Immutability getImmutability() {
-		return this.immutability;
+		// If enabled, the change detector determines whether mutable session attributes need to be written
+		return this.changeDetector.isPresent() ? IMMUTABLE : this.immutability;
+	}
+
+	/**
+	 * Returns the metrics of the session store, if metrics are enabled for the associated Vert.x instance.
+	 * @return the metrics of a session store
+	 */
+	public SessionStoreMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Returns a decorator of the attributes of a session, as required by the configured granularity.
+	 * @return a decorator of session attributes
+	 */
+	public UnaryOperator<Map<String, Object>> getSessionAttributesDecorator() {
+		return this.attributesDecorator;
+	}
+
+	/**
+	 * Returns the change detector for mutable session attributes, and for the users referenced by user holder session attributes, if enabled.
+	 * @return an optional change detector
+	 */
+	public Optional<SessionAttributeChangeDetector> getAttributeChangeDetector() {
+		return this.changeDetector;
 	}
 
 	@Override
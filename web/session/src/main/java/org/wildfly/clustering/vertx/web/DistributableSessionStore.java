@@ -5,10 +5,14 @@
 package org.wildfly.clustering.vertx.web;
 
 import java.time.Duration;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.StampedLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.function.UnaryOperator;
+
+import jdk.jfr.EventType;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
@@ -31,29 +35,68 @@ import org.wildfly.clustering.session.SessionManagerFactory;
  * A distributable Vert.x session store.
  */
 public class DistributableSessionStore implements SessionStore {
+	/** The name of the property used to configure the maximum duration to wait for in-flight sessions to close when this store is closed */
+	public static final String SHUTDOWN_TIMEOUT = "shutdownTimeout";
+	/** The name of the property used to enable caching of session attributes read within the scope of a request */
+	public static final String CACHE_ATTRIBUTES = "cacheAttributes";
+	/** The default maximum duration to wait for in-flight sessions to close when this store is closed */
+	public static final Duration DEFAULT_SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+	private static final System.Logger LOGGER = System.getLogger(DistributableSessionStore.class.getName());
+	private static final EventType LOAD_EVENT_TYPE = EventType.getEventType(SessionLoadEvent.class);
 
-	private final BiFunction<io.vertx.core.Context, JsonObject, SessionManagerFactory<io.vertx.core.Context, Void>> factory;
+	private final BiFunction<DistributableSessionManagerFactoryConfiguration, JsonObject, SessionManagerFactory<io.vertx.core.Context, Void>> factory;
 	private final Runnable closeTask;
-	private final StampedLock lifecycleLock = new StampedLock();
+	private final LifecycleGate gate = new LifecycleGate();
+	private final Map<String, Future<Void>> closures = new ConcurrentHashMap<>();
+	private final Map<String, SessionReference> references = new ConcurrentHashMap<>();
 
 	private volatile io.vertx.core.Context context;
 	private volatile SessionManager<Void> manager;
+	private volatile Duration shutdownTimeout;
+	private volatile boolean cacheAttributes;
+	private volatile Duration lastAccessThreshold;
+	private volatile SessionAttributeChangeDetector changeDetector;
+	private volatile UnaryOperator<Map<String, Object>> attributesDecorator;
+	private volatile SessionStoreMetrics metrics = SessionStoreMetrics.NONE;
 
 	/**
 	 * Creates a new distributable Vert.x session store.
-	 * @param factory a function for creating a session manager factory.
+	 * @param factory a function for creating a session manager factory from a session manager factory configuration and the options from which it was read.
 	 * @param closeTask a task to run on {@link SessionStore#close()}.
 	 */
-	public DistributableSessionStore(BiFunction<io.vertx.core.Context, JsonObject, SessionManagerFactory<io.vertx.core.Context, Void>> factory, Runnable closeTask) {
+	public DistributableSessionStore(BiFunction<DistributableSessionManagerFactoryConfiguration, JsonObject, SessionManagerFactory<io.vertx.core.Context, Void>> factory, Runnable closeTask) {
 		this.factory = factory;
 		this.closeTask = closeTask;
 	}
 
 	@Override
 	public SessionStore init(Vertx vertx, JsonObject options) {
+		return this.init(vertx.getOrCreateContext(), options);
+	}
+
+	/**
+	 * Initializes this session store via a worker thread, rather than by the calling thread, e.g. an event loop.
+	 * The session stores of multiple verticle instances are thereby initialized concurrently.
+	 * @param vertx a Vert.x instance
+	 * @param options the options from which this session store will be configured
+	 * @return a future that completes with this session store once it is ready to create and find sessions, i.e. following the initial state transfer of its cache, if any.
+	 */
+	public Future<SessionStore> initAsync(Vertx vertx, JsonObject options) {
 		io.vertx.core.Context context = vertx.getOrCreateContext();
+		return context.executeBlocking(() -> this.init(context, options), false);
+	}
+
+	private SessionStore init(io.vertx.core.Context context, JsonObject options) {
 		this.context = context;
-		SessionManagerFactory<io.vertx.core.Context, Void> factory = this.factory.apply(this.context, options);
+		this.shutdownTimeout = Optional.ofNullable(options.getString(SHUTDOWN_TIMEOUT)).map(Duration::parse).orElse(DEFAULT_SHUTDOWN_TIMEOUT);
+		this.cacheAttributes = options.getBoolean(CACHE_ATTRIBUTES, Boolean.FALSE);
+		DistributableSessionManagerFactoryConfiguration configuration = new DistributableSessionManagerFactoryConfiguration(context, options);
+		this.lastAccessThreshold = configuration.getLastAccessThreshold();
+		this.changeDetector = configuration.getAttributeChangeDetector().orElse(null);
+		this.attributesDecorator = configuration.getSessionAttributesDecorator();
+		this.metrics = configuration.getMetrics();
+		SessionManagerFactory<io.vertx.core.Context, Void> factory = this.factory.apply(configuration, options);
 		Supplier<String> identifierFactory = new VertxSessionIdentifierFactory(this.context);
 		this.manager = factory.createSessionManager(new SessionManagerConfiguration<>() {
 			@Override
@@ -88,20 +131,8 @@ public class DistributableSessionStore implements SessionStore {
 	@Override
 	public io.vertx.ext.web.Session createSession(long timeout) {
 		String id = this.manager.getIdentifierFactory().get();
-		Runnable closeTask = this.getSessionCloseTask();
-		try {
-			Session<Void> session = this.manager.createSession(id);
-			try {
-				session.getMetaData().setMaxIdle(Duration.ofMillis(timeout));
-				return new DistributableSession(this.manager, session, closeTask);
-			} catch (RuntimeException | Error e) {
-				Consumer.close().accept(session);
-				throw e;
-			}
-		} catch (RuntimeException | Error e) {
-			closeTask.run();
-			throw e;
-		}
+		// Defer creation via the session manager until the session is closed, so as not to block the event loop
+		return new DeferredSession(this.manager, this.context, id, timeout, this.gate.enter(), this.attributesDecorator);
 	}
 
 	@Override
@@ -112,23 +143,129 @@ public class DistributableSessionStore implements SessionStore {
 
 	@Override
 	public Future<io.vertx.ext.web.Session> get(String id) {
-		return this.context.executeBlocking(this::getSessionCloseTask)
-				.compose(closeTask -> Future.fromCompletionStage(this.manager.findSessionAsync(id), this.context)
-				.map(Function.when(Objects::nonNull, Function.<Session<Void>, io.vertx.ext.web.Session>when(ImmutableSession.VALID, session -> new DistributableSession(this.manager, session, closeTask), Function.of(Consumer.of().thenRun(closeTask), Supplier.of(null))), Function.of(null)))
-				.onFailure(e -> closeTask.run()));
+		SessionReference reference = this.references.get(id);
+		if ((reference != null) && reference.isDestroyed()) {
+			// If this session was destroyed by a request still in progress, wait for it to be invalidated
+			return reference.closed().transform(result -> this.get(id));
+		}
+		Future<Void> closure = this.closures.get(id);
+		// If this session is still being closed by a previous request, wait for it to complete
+		return (closure != null) ? closure.transform(result -> this.find(id)) : this.find(id);
+	}
+
+	private Future<io.vertx.ext.web.Session> find(String id) {
+		Runnable closeTask;
+		try {
+			closeTask = this.gate.enter();
+		} catch (IllegalStateException e) {
+			return Future.failedFuture(e);
+		}
+		// Share a single session with any concurrent requests for the same session
+		SessionReference reference = this.references.compute(id, (key, existing) -> ((existing != null) && existing.acquire()) ? existing : new SessionReference(detached -> this.references.remove(key, detached), this.attributesDecorator));
+		return reference.load(() -> {
+					long start = System.nanoTime();
+					// Avoid allocating an event that would otherwise escape to the completion handler, unless enabled
+					SessionLoadEvent event = LOAD_EVENT_TYPE.isEnabled() ? new SessionLoadEvent() : null;
+					if (event != null) {
+						event.begin();
+					}
+					return Future.fromCompletionStage(this.manager.findSessionAsync(id), this.context).map(Function.when(Objects::nonNull, Function.<Session<Void>, Session<Void>>when(ImmutableSession.VALID, Function.identity(), session -> {
+						session.close();
+						return null;
+					}), Function.of(null))).onSuccess(session -> {
+						this.metrics.sessionLoaded(session != null, System.nanoTime() - start);
+						if (event != null) {
+							event.end();
+							if (event.shouldCommit()) {
+								event.sessionIdHash = id.hashCode();
+								event.found = session != null;
+								event.commit();
+							}
+						}
+					});
+				})
+				.map(Function.<SessionReference, io.vertx.ext.web.Session>when(Objects::nonNull, loaded -> loaded.add(new DistributableSession(this.manager, this.context, loaded, closeTask, this.cacheAttributes, this.lastAccessThreshold, this.changeDetector)), Function.of(Consumer.of().thenRun(reference::detach).thenRun(closeTask), Supplier.of(null))))
+				.onFailure(e -> {
+					reference.detach();
+					closeTask.run();
+				});
+	}
+
+	/**
+	 * Returns a read-only view of the session with the specified identifier, which avoids locking, committing, or persisting the last access time of the session for each request.
+	 * The returned session must be closed via {@link #put(io.vertx.ext.web.Session)}, and throws an {@link UnsupportedOperationException} on any attempt to mutate it.
+	 * @param id a session identifier
+	 * @return a future that completes with a read-only session, or null, if no such session exists.
+	 */
+	public Future<io.vertx.ext.web.Session> getReadOnly(String id) {
+		SessionReference reference = this.references.get(id);
+		if ((reference != null) && reference.isDestroyed()) {
+			// If this session was destroyed by a request still in progress, wait for it to be invalidated
+			return reference.closed().transform(result -> this.getReadOnly(id));
+		}
+		Future<Void> closure = this.closures.get(id);
+		// If this session is still being closed by a previous request, wait for it to complete
+		return (closure != null) ? closure.transform(result -> this.findReadOnly(id)) : this.findReadOnly(id);
+	}
+
+	private Future<io.vertx.ext.web.Session> findReadOnly(String id) {
+		Runnable closeTask;
+		try {
+			closeTask = this.gate.enter();
+		} catch (IllegalStateException e) {
+			return Future.failedFuture(e);
+		}
+		return Future.fromCompletionStage(this.manager.findImmutableSessionAsync(id), this.context)
+				.map(Function.when(Objects::nonNull, Function.<ImmutableSession, io.vertx.ext.web.Session>when(ImmutableSession.VALID, session -> new ReadOnlySession(this.manager, this.context, session, closeTask, this.lastAccessThreshold, this.attributesDecorator), Function.of(Consumer.of().thenRun(closeTask), Supplier.of(null))), Function.of(Consumer.of().thenRun(closeTask), Supplier.of(null))))
+				.onFailure(e -> closeTask.run());
 	}
 
 	@Override
 	public Future<Void> delete(String id) {
-		// Do nothing - DistributableSession.regenerateId already removed the old session
+		// A regenerated session removes its old session when closed
+		SessionReference reference = this.references.get(id);
+		if ((reference != null) && reference.isDestroyed()) {
+			// Vert.x deletes, rather than puts, a destroyed session, thus close any holder of the destroyed session on behalf of the request
+			// Holders of a destroyed session are indistinguishable, and the last to close invalidates the session
+			VertxSession session = reference.poll();
+			if (session != null) {
+				return this.put(session);
+			}
+		}
 		return Future.succeededFuture();
 	}
 
 	@Override
 	public Future<Void> put(io.vertx.ext.web.Session session) {
+		if (session instanceof VertxSession vertxSession) {
+			long start = System.nanoTime();
+			Future<Void> closure = vertxSession.closeAsync();
+			this.meter(vertxSession, closure, start);
+			if (!closure.isComplete()) {
+				this.register(vertxSession.id(), closure);
+				if (vertxSession.isRegenerated()) {
+					this.register(vertxSession.oldId(), closure);
+				}
+			}
+			return closure;
+		}
 		return Future.succeededFuture();
 	}
 
+	private void meter(VertxSession session, Future<Void> closure, long start) {
+		SessionStoreMetrics metrics = this.metrics;
+		// Read-only sessions are not committed
+		if ((metrics != SessionStoreMetrics.NONE) && !(session instanceof ReadOnlySession)) {
+			LongConsumer recorder = session.isDestroyed() ? metrics::sessionDestroyed : (session instanceof DeferredSession) ? metrics::sessionCreated : session.isRegenerated() ? metrics::sessionRegenerated : metrics::sessionCommitted;
+			closure.onSuccess(result -> recorder.accept(System.nanoTime() - start));
+		}
+	}
+
+	private void register(String id, Future<Void> closure) {
+		this.closures.put(id, closure);
+		closure.onComplete(result -> this.closures.remove(id, closure));
+	}
+
 	@Override
 	public Future<Void> clear() {
 		return Future.succeededFuture();
@@ -141,10 +278,11 @@ public class DistributableSessionStore implements SessionStore {
 
 	@Override
 	public void close() {
-		try {
-			this.lifecycleLock.writeLockInterruptibly();
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
+		long start = System.nanoTime();
+		boolean closed = this.gate.close(this.shutdownTimeout);
+		this.metrics.storeClosed(System.nanoTime() - start);
+		if (!closed) {
+			LOGGER.log(System.Logger.Level.WARNING, "Closing session store before all in-flight sessions were closed");
 		}
 		try {
 			this.manager.stop();
@@ -152,23 +290,4 @@ public class DistributableSessionStore implements SessionStore {
 			this.closeTask.run();
 		}
 	}
-
-	private Runnable getSessionCloseTask() {
-		StampedLock lock = this.lifecycleLock;
-		long stamp = lock.tryReadLock();
-		if (!StampedLock.isReadLockStamp(stamp)) {
-			throw new IllegalStateException();
-		}
-		AtomicLong stampRef = new AtomicLong(stamp);
-		return new Runnable() {
-			@Override
-			public void run() {
-				// Ensure we only unlock once.
-				long stamp = stampRef.getAndSet(0L);
-				if (StampedLock.isReadLockStamp(stamp)) {
-					lock.unlockRead(stamp);
-				}
-			}
-		};
-	}
 }
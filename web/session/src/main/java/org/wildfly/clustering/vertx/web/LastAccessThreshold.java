@@ -0,0 +1,38 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.wildfly.clustering.session.ImmutableSessionMetaData;
+
+/**
+ * Determines whether the persisted last access time of a session is stale, i.e. whether a request should update it.
+ */
+final class LastAccessThreshold {
+
+	private LastAccessThreshold() {
+		// Hide
+	}
+
+	/**
+	 * Indicates whether the persisted last access time of the session with the specified meta data is older than the specified threshold.
+	 * @param threshold the minimum duration since the persisted last access time of a session before it is updated, where zero indicates that every request updates it.
+	 * @param metaData the meta data of a session
+	 * @param now the end time of the current request
+	 * @return true, if the last access time of the session should be updated, false otherwise.
+	 */
+	static boolean isStale(Duration threshold, ImmutableSessionMetaData metaData, Instant now) {
+		if (threshold.isZero()) {
+			return true;
+		}
+		// Ignore a threshold that meets or exceeds the maximum inactive interval, which would otherwise allow the session to expire while in use
+		if (threshold.compareTo(metaData.getMaxIdle().orElse(Duration.ZERO)) >= 0) {
+			return true;
+		}
+		return Duration.between(ImmutableSessionMetaData.LAST_ACCESS_TIME.apply(metaData), now).compareTo(threshold) >= 0;
+	}
+}
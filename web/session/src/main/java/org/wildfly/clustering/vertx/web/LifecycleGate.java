@@ -0,0 +1,65 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Guards the lifecycle of a session store against the sessions that reference it.
+ * Entering the gate never blocks, and increments a striped counter, so that concurrent entrants do not contend for a single cache line.
+ * Closing the gate prevents subsequent entry, and waits for any in-flight entrants to exit.
+ */
+class LifecycleGate {
+	private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final LongAdder entrants = new LongAdder();
+	private final Runnable exitTask = this.entrants::decrement;
+	private volatile boolean closed = false;
+
+	/**
+	 * Enters this gate.
+	 * @return a task that exits this gate, which must run exactly once.
+	 * @throws IllegalStateException if this gate was already closed
+	 */
+	Runnable enter() {
+		if (this.closed) {
+			throw new IllegalStateException();
+		}
+		this.entrants.increment();
+		// Re-check, in case this gate was closed concurrently
+		if (this.closed) {
+			this.entrants.decrement();
+			throw new IllegalStateException();
+		}
+		return this.exitTask;
+	}
+
+	/**
+	 * Closes this gate, waiting for any in-flight entrants to exit.
+	 * @param timeout the maximum duration to wait for in-flight entrants to exit
+	 * @return true, if all entrants exited, false if the specified timeout elapsed or the waiting thread was interrupted.
+	 */
+	boolean close(Duration timeout) {
+		this.closed = true;
+		long timeoutNanos = (timeout.getSeconds() < TimeUnit.NANOSECONDS.toSeconds(Long.MAX_VALUE)) ? timeout.toNanos() : Long.MAX_VALUE;
+		long start = System.nanoTime();
+		long parkNanos = MIN_PARK_NANOS;
+		while (this.entrants.sum() > 0) {
+			if (System.nanoTime() - start >= timeoutNanos) {
+				return false;
+			}
+			LockSupport.parkNanos(this, parkNanos);
+			if (Thread.currentThread().isInterrupted()) {
+				return false;
+			}
+			parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+		}
+		return true;
+	}
+}
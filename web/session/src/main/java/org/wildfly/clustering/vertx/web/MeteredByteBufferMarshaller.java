@@ -0,0 +1,146 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import jdk.jfr.EventType;
+
+import org.wildfly.clustering.marshalling.ByteBufferMarshaller;
+
+/**
+ * Decorates a marshaller such that the number of bytes written per marshalled object is recorded via the session store metrics, if enabled.
+ * Also emits Java Flight Recorder events for each marshalled and unmarshalled object, if enabled.
+ * If neither are enabled, this marshaller delegates directly to the decorated marshaller.
+ */
+class MeteredByteBufferMarshaller implements ByteBufferMarshaller {
+	private static final EventType MARSHAL_EVENT_TYPE = EventType.getEventType(SessionAttributeMarshalEvent.class);
+	private static final EventType UNMARSHAL_EVENT_TYPE = EventType.getEventType(SessionAttributeUnmarshalEvent.class);
+
+	private final ByteBufferMarshaller marshaller;
+	private final SessionStoreMetrics metrics;
+
+	MeteredByteBufferMarshaller(ByteBufferMarshaller marshaller, SessionStoreMetrics metrics) {
+		this.marshaller = marshaller;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public boolean isMarshallable(Object object) {
+		return this.marshaller.isMarshallable(object);
+	}
+
+	@Override
+	public Object readFrom(InputStream input) throws IOException {
+		if (!UNMARSHAL_EVENT_TYPE.isEnabled()) {
+			return this.marshaller.readFrom(input);
+		}
+		SessionAttributeUnmarshalEvent event = new SessionAttributeUnmarshalEvent();
+		event.begin();
+		CountingInputStream counter = new CountingInputStream(input);
+		Object result = this.marshaller.readFrom(counter);
+		event.end();
+		if (event.shouldCommit()) {
+			event.type = (result != null) ? result.getClass().getName() : null;
+			event.bytes = counter.count;
+			event.commit();
+		}
+		return result;
+	}
+
+	@Override
+	public void writeTo(OutputStream output, Object object) throws IOException {
+		boolean metered = this.metrics != SessionStoreMetrics.NONE;
+		SessionAttributeMarshalEvent event = MARSHAL_EVENT_TYPE.isEnabled() ? new SessionAttributeMarshalEvent() : null;
+		if (!metered && (event == null)) {
+			this.marshaller.writeTo(output, object);
+			return;
+		}
+		if (event != null) {
+			event.begin();
+		}
+		CountingOutputStream counter = new CountingOutputStream(output);
+		this.marshaller.writeTo(counter, object);
+		if (metered) {
+			this.metrics.attributeMarshalled(counter.count);
+		}
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.type = (object != null) ? object.getClass().getName() : null;
+				event.bytes = counter.count;
+				event.commit();
+			}
+		}
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+		private long count = 0;
+
+		CountingInputStream(InputStream input) {
+			super(input);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int result = this.in.read();
+			if (result >= 0) {
+				this.count += 1;
+			}
+			return result;
+		}
+
+		@Override
+		public int read(byte[] b, int offset, int length) throws IOException {
+			int result = this.in.read(b, offset, length);
+			if (result > 0) {
+				this.count += result;
+			}
+			return result;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long result = this.in.skip(n);
+			this.count += result;
+			return result;
+		}
+
+		@Override
+		public void close() throws IOException {
+			// Do not close the decorated stream
+		}
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count = 0;
+
+		CountingOutputStream(OutputStream output) {
+			super(output);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			this.count += 1;
+		}
+
+		@Override
+		public void write(byte[] b, int offset, int length) throws IOException {
+			this.out.write(b, offset, length);
+			this.count += length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			// Do not close the decorated stream
+			this.flush();
+		}
+	}
+}
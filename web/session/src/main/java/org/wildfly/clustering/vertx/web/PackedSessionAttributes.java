@@ -0,0 +1,234 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.wildfly.clustering.marshalling.ByteBufferMarshaller;
+
+/**
+ * Decorates the attributes of a session, persisted per attribute, such that attributes whose marshalled size does not exceed a given threshold are packed together within a single attribute.
+ * Large attributes are persisted individually, so that modifying a small attribute does not rewrite a large one, while small attributes do not incur the per-entry overhead of individual persistence.
+ * Mutations perform a read-modify-write of the packed attributes, and are thus not thread-safe; these rely on the write lock of the {@link DistributableSession} that references the decorated attributes, which serializes mutations across concurrent requests for the same session.
+ */
+public class PackedSessionAttributes extends AbstractMap<String, Object> {
+	/** The name of the attribute containing all packed attributes */
+	public static final String PACKED_ATTRIBUTES_NAME = "__wildfly.packedAttributes";
+
+	private final Map<String, Object> attributes;
+	private final ByteBufferMarshaller marshaller;
+	private final int threshold;
+
+	/**
+	 * Creates a decorator of the specified session attributes.
+	 * @param attributes the decorated session attributes
+	 * @param marshaller the marshaller of session attributes
+	 * @param threshold the maximum marshalled size, in bytes, of a packed attribute
+	 */
+	public PackedSessionAttributes(Map<String, Object> attributes, ByteBufferMarshaller marshaller, int threshold) {
+		this.attributes = attributes;
+		this.marshaller = marshaller;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public Object get(Object key) {
+		if (PACKED_ATTRIBUTES_NAME.equals(key)) {
+			return null;
+		}
+		Object value = this.packed().get(key);
+		return (value != null) ? value : this.attributes.get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return !PACKED_ATTRIBUTES_NAME.equals(key) && (this.packed().containsKey(key) || this.attributes.containsKey(key));
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		if (PACKED_ATTRIBUTES_NAME.equals(key)) {
+			throw new IllegalArgumentException(key);
+		}
+		Map<String, Object> packed = this.packed();
+		if (this.isPackable(value)) {
+			Object previous = packed.containsKey(key) ? packed.get(key) : this.attributes.remove(key);
+			Map<String, Object> newPacked = new HashMap<>(packed);
+			newPacked.put(key, value);
+			this.setPacked(newPacked);
+			return previous;
+		}
+		Object previous = this.attributes.put(key, value);
+		if (packed.containsKey(key)) {
+			Map<String, Object> newPacked = new HashMap<>(packed);
+			previous = newPacked.remove(key);
+			this.setPacked(newPacked);
+		}
+		return previous;
+	}
+
+	@Override
+	public void putAll(Map<? extends String, ? extends Object> map) {
+		// Write packed attributes once
+		Map<String, Object> packed = this.packed();
+		Map<String, Object> newPacked = new HashMap<>(packed);
+		for (Map.Entry<? extends String, ? extends Object> entry : map.entrySet()) {
+			String key = entry.getKey();
+			Object value = entry.getValue();
+			if (PACKED_ATTRIBUTES_NAME.equals(key)) {
+				throw new IllegalArgumentException(key);
+			}
+			if (this.isPackable(value)) {
+				newPacked.put(key, value);
+				this.attributes.remove(key);
+			} else {
+				newPacked.remove(key);
+				this.attributes.put(key, value);
+			}
+		}
+		if (!newPacked.equals(packed)) {
+			this.setPacked(newPacked);
+		}
+	}
+
+	@Override
+	public Object remove(Object key) {
+		if (PACKED_ATTRIBUTES_NAME.equals(key)) {
+			return null;
+		}
+		Map<String, Object> packed = this.packed();
+		if (packed.containsKey(key)) {
+			Map<String, Object> newPacked = new HashMap<>(packed);
+			Object previous = newPacked.remove(key);
+			this.setPacked(newPacked);
+			return previous;
+		}
+		return this.attributes.remove(key);
+	}
+
+	@Override
+	public int size() {
+		return this.packed().size() + this.attributes.size() - (this.attributes.containsKey(PACKED_ATTRIBUTES_NAME) ? 1 : 0);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.attributes.isEmpty();
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		return new AbstractSet<>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				Map<String, Object> packed = PackedSessionAttributes.this.packed();
+				List<Map.Entry<String, Object>> entries = new ArrayList<>(packed.size() + PackedSessionAttributes.this.attributes.size());
+				entries.addAll(packed.entrySet());
+				for (String key : PackedSessionAttributes.this.attributes.keySet()) {
+					if (!PACKED_ATTRIBUTES_NAME.equals(key)) {
+						entries.add(Map.entry(key, PackedSessionAttributes.this.attributes.get(key)));
+					}
+				}
+				Iterator<Map.Entry<String, Object>> iterator = entries.iterator();
+				return new Iterator<>() {
+					private Map.Entry<String, Object> current;
+
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public Map.Entry<String, Object> next() {
+						this.current = iterator.next();
+						return this.current;
+					}
+
+					@Override
+					public void remove() {
+						PackedSessionAttributes.this.remove(this.current.getKey());
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return PackedSessionAttributes.this.size();
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> packed() {
+		Object packed = this.attributes.get(PACKED_ATTRIBUTES_NAME);
+		return (packed != null) ? (Map<String, Object>) packed : Map.of();
+	}
+
+	private void setPacked(Map<String, Object> packed) {
+		if (packed.isEmpty()) {
+			this.attributes.remove(PACKED_ATTRIBUTES_NAME);
+		} else {
+			// Packed attributes are effectively immutable, unless any of its values are mutable
+			this.attributes.put(PACKED_ATTRIBUTES_NAME, Map.copyOf(packed));
+		}
+	}
+
+	private boolean isPackable(Object value) {
+		SizeOutputStream output = new SizeOutputStream(this.threshold);
+		try (output) {
+			this.marshaller.writeTo(output, value);
+		} catch (IOException e) {
+			// Either the threshold was exceeded, or the attribute is not marshallable, in which case, let the decorated attributes report the failure
+			return false;
+		}
+		return output.size <= this.threshold;
+	}
+
+	private static class ThresholdExceededException extends IOException {
+		private static final long serialVersionUID = -6541815049924547512L;
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			// Stack trace is never used
+			return this;
+		}
+	}
+
+	// Counts marshalled bytes, aborting marshalling as soon as the threshold is exceeded
+	private static class SizeOutputStream extends OutputStream {
+		private final int threshold;
+		private long size = 0;
+
+		SizeOutputStream(int threshold) {
+			this.threshold = threshold;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.increment(1);
+		}
+
+		@Override
+		public void write(byte[] b, int offset, int length) throws IOException {
+			this.increment(length);
+		}
+
+		private void increment(int length) throws IOException {
+			this.size += length;
+			if (this.size > this.threshold) {
+				throw new ThresholdExceededException();
+			}
+		}
+	}
+}
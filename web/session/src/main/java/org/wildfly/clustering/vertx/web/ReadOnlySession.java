@@ -0,0 +1,167 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+import org.wildfly.clustering.session.ImmutableSession;
+import org.wildfly.clustering.session.ImmutableSessionMetaData;
+import org.wildfly.clustering.session.Session;
+import org.wildfly.clustering.session.SessionManager;
+
+/**
+ * A read-only Vert.x session backed by an immutable session, which neither locks nor commits the session.
+ * Any attempt to mutate this session will throw an {@link UnsupportedOperationException}.
+ * On close, the last access time of the session is only updated, by a worker thread, if it is older than a given threshold.
+ */
+public class ReadOnlySession implements VertxSession {
+	// Fraction of the maximum inactive interval used as a threshold, if none was configured
+	private static final int DEFAULT_LAST_ACCESS_THRESHOLD_DIVISOR = 10;
+
+	private final SessionManager<Void> manager;
+	private final io.vertx.core.Context context;
+	private final ImmutableSession session;
+	private final AtomicReference<Runnable> closeTask;
+	private final Promise<Void> closed = Promise.promise();
+	private final Instant startTime = Instant.now();
+	private final Duration lastAccessThreshold;
+	private final Map<String, Object> attributes;
+
+	/**
+	 * Creates a read-only Vert.x session backed by the specified immutable session.
+	 * @param manager the manager of the specified session
+	 * @param context the context used to update the last access time of this session
+	 * @param session the decorated session
+	 * @param closeTask a task to invoke on {@link VertxSession#close()}.
+	 * @param lastAccessThreshold the minimum duration since the persisted last access time of this session before it is updated, where zero indicates a fraction of the maximum inactive interval of this session.
+	 * @param attributesDecorator a decorator of the attributes of the specified session
+	 */
+	public ReadOnlySession(SessionManager<Void> manager, io.vertx.core.Context context, ImmutableSession session, Runnable closeTask, Duration lastAccessThreshold, UnaryOperator<Map<String, Object>> attributesDecorator) {
+		this.manager = manager;
+		this.context = context;
+		this.session = session;
+		this.closeTask = new AtomicReference<>(closeTask);
+		this.attributes = attributesDecorator.apply(session.getAttributes());
+		this.lastAccessThreshold = lastAccessThreshold.isZero() ? session.getMetaData().getMaxIdle().orElse(Duration.ZERO).dividedBy(DEFAULT_LAST_ACCESS_THRESHOLD_DIVISOR) : lastAccessThreshold;
+	}
+
+	@Override
+	public io.vertx.ext.web.Session regenerateId() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String id() {
+		return this.session.getId();
+	}
+
+	@Override
+	public io.vertx.ext.web.Session put(String key, Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public io.vertx.ext.web.Session putIfAbsent(String key, Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public io.vertx.ext.web.Session computeIfAbsent(String key, java.util.function.Function<String, Object> mappingFunction) {
+		throw new UnsupportedOperationException();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T get(String key) {
+		return (T) this.attributes.get(key);
+	}
+
+	@Override
+	public <T> T remove(String key) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Map<String, Object> data() {
+		return Map.copyOf(this.attributes);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.attributes.isEmpty();
+	}
+
+	@Override
+	public long lastAccessed() {
+		return ImmutableSessionMetaData.LAST_ACCESS_TIME.apply(this.session.getMetaData()).toEpochMilli();
+	}
+
+	@Override
+	public void destroy() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean isDestroyed() {
+		return !this.session.isValid();
+	}
+
+	@Override
+	public boolean isRegenerated() {
+		return false;
+	}
+
+	@Override
+	public String oldId() {
+		return this.session.getId();
+	}
+
+	@Override
+	public long timeout() {
+		return this.session.getMetaData().getMaxIdle().orElse(Duration.ZERO).toMillis();
+	}
+
+	@Override
+	public Future<Void> closeAsync() {
+		Runnable closeTask = this.closeTask.getAndSet(null);
+		if (closeTask != null) {
+			Instant now = Instant.now();
+			if (this.isLastAccessStale(now)) {
+				// Exit via the worker thread, since the store may be closed, i.e. awaiting this exit, by the event loop
+				this.context.<Void>executeBlocking(() -> {
+					try {
+						return this.touch(now);
+					} finally {
+						closeTask.run();
+					}
+				}, false).onComplete(this.closed::succeed, this.closed::fail);
+			} else {
+				closeTask.run();
+				this.closed.tryComplete();
+			}
+		}
+		return this.closed.future();
+	}
+
+	private boolean isLastAccessStale(Instant now) {
+		return this.session.isValid() && LastAccessThreshold.isStale(this.lastAccessThreshold, this.session.getMetaData(), now);
+	}
+
+	private Void touch(Instant now) {
+		try (Session<Void> session = this.manager.findSession(this.session.getId())) {
+			if ((session != null) && session.isValid()) {
+				session.getMetaData().setLastAccess(this.startTime, now);
+			}
+		}
+		return null;
+	}
+}
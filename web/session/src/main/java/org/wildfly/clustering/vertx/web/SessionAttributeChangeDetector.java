@@ -0,0 +1,83 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.wildfly.clustering.marshalling.ByteBufferMarshaller;
+import org.wildfly.clustering.server.immutable.Immutability;
+
+/**
+ * Detects changes to mutable session attributes by comparing digests of their marshalled form.
+ * A mutable attribute is digested when first read by a request, and only needs to be written when its digest changes by the end of that request.
+ */
+public class SessionAttributeChangeDetector {
+	private static final String ALGORITHM = "SHA-256";
+	// Digest of an attribute that could not be marshalled, which never matches
+	private static final byte[] UNKNOWN = new byte[0];
+
+	private final Immutability immutability;
+	private final ByteBufferMarshaller marshaller;
+
+	/**
+	 * Creates a change detector for session attributes.
+	 * @param immutability determines whether a given attribute is immutable, and thus cannot change
+	 * @param marshaller the marshaller of session attributes
+	 */
+	public SessionAttributeChangeDetector(Immutability immutability, ByteBufferMarshaller marshaller) {
+		this.immutability = immutability;
+		this.marshaller = marshaller;
+		// Fail fast if algorithm is unavailable
+		createDigest();
+	}
+
+	/**
+	 * Indicates whether the specified attribute is mutable, and thus requires change detection.
+	 * @param value an attribute value
+	 * @return true, if the specified attribute is mutable, false otherwise.
+	 */
+	public boolean isMutable(Object value) {
+		return !this.immutability.test(value);
+	}
+
+	/**
+	 * Computes a digest of the marshalled form of the specified attribute.
+	 * @param value an attribute value
+	 * @return a digest of the specified attribute
+	 */
+	public byte[] digest(Object value) {
+		MessageDigest digest = createDigest();
+		try (OutputStream output = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+			this.marshaller.writeTo(output, value);
+		} catch (IOException e) {
+			// Attribute will be considered changed
+			return UNKNOWN;
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Indicates whether the specified attribute has changed since the specified digest was computed.
+	 * @param value an attribute value
+	 * @param digest a digest computed via {@link #digest(Object)}
+	 * @return true, if the specified attribute changed, false otherwise.
+	 */
+	public boolean isChanged(Object value, byte[] digest) {
+		return (digest == UNKNOWN) || !Arrays.equals(digest, this.digest(value));
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event emitted when a session store marshals a session attribute, or all attributes of a session, depending on the configured granularity.
+ */
+@Name("org.wildfly.clustering.vertx.web.SessionAttributeMarshal")
+@Label("Session Attribute Marshal")
+@Description("Marshals a session attribute, or all attributes of a session, depending on the configured granularity.")
+@Category({ "WildFly Clustering", "Vert.x Web Session" })
+class SessionAttributeMarshalEvent extends Event {
+	@Label("Type")
+	String type;
+
+	@Label("Size")
+	@DataAmount
+	long bytes;
+}
@@ -30,18 +30,22 @@ public enum SessionAttributeMarshaller implements Function<ClassLoader, ByteBuff
 			return new JavaByteBufferMarshaller(loader, filter);
 		}
 	},
-	/** Creates a marshaller based on JBoss Marshalling. */
+	/** Creates a marshaller based on JBoss Marshalling, shared by all session stores of a given class loader. */
 	JBOSS() {
+		private final Function<ClassLoader, ByteBufferMarshaller> cache = new ClassLoaderCache<>(loader -> new JBossByteBufferMarshaller(MarshallingConfigurationBuilder.newInstance(new SimpleClassResolver(loader)).load(loader).build(), loader));
+
 		@Override
 		public ByteBufferMarshaller apply(ClassLoader loader) {
-			return new JBossByteBufferMarshaller(MarshallingConfigurationBuilder.newInstance(new SimpleClassResolver(loader)).load(loader).build(), loader);
+			return this.cache.apply(loader);
 		}
 	},
-	/** Creates a marshaller based on ProtoStream. */
+	/** Creates a marshaller based on ProtoStream, shared by all session stores of a given class loader. */
 	PROTOSTREAM() {
+		private final Function<ClassLoader, ByteBufferMarshaller> cache = new ClassLoaderCache<>(loader -> new ProtoStreamByteBufferMarshaller(SerializationContextBuilder.newInstance(ClassLoaderMarshaller.of(loader)).load(loader).build()));
+
 		@Override
 		public ByteBufferMarshaller apply(ClassLoader loader) {
-			return new ProtoStreamByteBufferMarshaller(SerializationContextBuilder.newInstance(ClassLoaderMarshaller.of(loader)).load(loader).build());
+			return this.cache.apply(loader);
 		}
 	},
 }
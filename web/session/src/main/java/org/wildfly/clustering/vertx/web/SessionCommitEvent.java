@@ -0,0 +1,20 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event emitted when a request commits an existing session at the end of a request, including the copying of a regenerated session.
+ */
+@Name("org.wildfly.clustering.vertx.web.SessionCommit")
+@Label("Session Commit")
+@Description("Commits an existing session at the end of a request, including the copying of a regenerated session.")
+class SessionCommitEvent extends SessionEvent {
+	@Label("Regenerated")
+	boolean regenerated;
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base Java Flight Recorder event concerning a given session.
+ * The session identifier itself is not recorded, only its hash, so that recordings do not reveal session identifiers.
+ */
+@Category({ "WildFly Clustering", "Vert.x Web Session" })
+abstract class SessionEvent extends Event {
+	@Label("Session Identifier Hash")
+	int sessionIdHash;
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event emitted when a request loads an existing session, on behalf of one or more concurrent requests.
+ */
+@Name("org.wildfly.clustering.vertx.web.SessionLoad")
+@Label("Session Load")
+@Description("Loads an existing session, on behalf of one or more concurrent requests.")
+class SessionLoadEvent extends SessionEvent {
+	@Label("Found")
+	boolean found;
+}
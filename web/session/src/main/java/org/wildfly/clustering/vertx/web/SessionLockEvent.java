@@ -0,0 +1,18 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event emitted when a request acquires the exclusive lock of a session shared by concurrent requests.
+ */
+@Name("org.wildfly.clustering.vertx.web.SessionLock")
+@Label("Session Lock")
+@Description("Acquires the exclusive lock of a session shared by concurrent requests.")
+class SessionLockEvent extends SessionEvent {
+}
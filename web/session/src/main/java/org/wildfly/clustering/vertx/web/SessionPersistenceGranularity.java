@@ -17,6 +17,8 @@ public enum SessionPersistenceGranularity implements Supplier<SessionAttributePe
 	SESSION(SessionAttributePersistenceStrategy.COARSE),
 	/** A strategy that only persists modified/mutable attributes of a session, where any shared object references between attributes are not preserved. */
 	ATTRIBUTE(SessionAttributePersistenceStrategy.FINE),
+	/** A strategy that persists small attributes of a session together, and large attributes individually, where any shared object references between attributes are not preserved. */
+	HYBRID(SessionAttributePersistenceStrategy.FINE),
 	;
 	private final SessionAttributePersistenceStrategy strategy;
 
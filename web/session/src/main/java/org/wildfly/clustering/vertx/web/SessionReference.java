@@ -0,0 +1,231 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+import org.wildfly.clustering.session.Session;
+
+/**
+ * A reference-counted reference to a session shared by concurrent requests for the same session on this node.
+ * The referenced session is replaced, under the write lock, when its identifier is regenerated, and is closed when its last holder releases it.
+ * If destroyed by any holder, the referenced session appears destroyed to all of its holders, but is only invalidated when its last holder releases it.
+ */
+public class SessionReference {
+
+	private final StampedLock lock = new StampedLock();
+	private final AtomicInteger holders = new AtomicInteger(1);
+	private final Consumer<SessionReference> detachTask;
+	private final UnaryOperator<Map<String, Object>> attributesDecorator;
+	private final AtomicBoolean loading = new AtomicBoolean(false);
+	private final Promise<SessionReference> loaded = Promise.promise();
+	private final Promise<Void> closed = Promise.promise();
+	private final Queue<VertxSession> sessions = new ConcurrentLinkedQueue<>();
+	private volatile boolean destroyed = false;
+	private Session<Void> session; // Guarded by lock
+	private Map<String, Object> attributes; // Guarded by lock
+	private long version; // Guarded by lock
+
+	/**
+	 * Creates a session reference held by a single holder.
+	 * @param detachTask a task that prevents subsequent requests from acquiring this reference
+	 * @param attributesDecorator a decorator of the attributes of the referenced session
+	 */
+	public SessionReference(Consumer<SessionReference> detachTask, UnaryOperator<Map<String, Object>> attributesDecorator) {
+		this.detachTask = detachTask;
+		this.attributesDecorator = attributesDecorator;
+	}
+
+	/**
+	 * Loads the referenced session via the specified loader, unless already loaded by a previous holder.
+	 * @param loader a loader of the referenced session, returning a future that completes with null if no such session exists
+	 * @return a future that completes with this reference, or null, if no such session exists.
+	 */
+	public Future<SessionReference> load(Supplier<Future<Session<Void>>> loader) {
+		if (this.loading.compareAndSet(false, true)) {
+			loader.get().map(session -> {
+				if (session == null) {
+					return null;
+				}
+				// Subsequent holders can only reference this session once loaded
+				this.set(session);
+				return this;
+			}).onComplete(this.loaded::succeed, this.loaded::fail);
+		}
+		return this.loaded.future();
+	}
+
+	/**
+	 * Returns the lock guarding the referenced session.
+	 * Accessors of the referenced session must hold the read lock, while replacement of the referenced session requires the write lock.
+	 * @return a lock
+	 */
+	public StampedLock getLock() {
+		return this.lock;
+	}
+
+	/**
+	 * Returns the referenced session.
+	 * @return the referenced session
+	 */
+	public Session<Void> get() {
+		return this.session;
+	}
+
+	/**
+	 * Returns the decorated attributes of the referenced session.
+	 * @return the attributes of the referenced session
+	 */
+	public Map<String, Object> getAttributes() {
+		return this.attributes;
+	}
+
+	/**
+	 * Replaces the referenced session.
+	 * @param session a session
+	 */
+	public void set(Session<Void> session) {
+		this.session = session;
+		this.attributes = this.attributesDecorator.apply(session.getAttributes());
+		this.version += 1;
+	}
+
+	/**
+	 * Returns the version of the referenced session, which changes whenever the referenced session is mutated or replaced.
+	 * Allows a holder to detect mutations made by other holders between separate acquisitions of the lock.
+	 * @return the version of the referenced session
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Records a mutation of the referenced session by a holder of the write lock.
+	 */
+	public void mutated() {
+		this.version += 1;
+	}
+
+	/**
+	 * Registers the Vert.x session of a holder of this reference, until closed.
+	 * @param <S> the session type
+	 * @param session the Vert.x session of a holder of this reference
+	 * @return the specified session
+	 */
+	public <S extends VertxSession> S add(S session) {
+		this.sessions.add(session);
+		return session;
+	}
+
+	/**
+	 * Unregisters the Vert.x session of a holder of this reference, e.g. when closed.
+	 * @param session the Vert.x session of a holder of this reference
+	 */
+	public void remove(VertxSession session) {
+		this.sessions.remove(session);
+	}
+
+	/**
+	 * Unregisters and returns the Vert.x session of any holder of this reference that has not yet been closed.
+	 * @return the Vert.x session of a holder of this reference, or null, if all were closed.
+	 */
+	public VertxSession poll() {
+		return this.sessions.poll();
+	}
+
+	/**
+	 * Marks the referenced session as destroyed for all of its holders, deferring its invalidation until released by its last holder.
+	 */
+	public void destroy() {
+		this.destroyed = true;
+	}
+
+	/**
+	 * Indicates whether the referenced session was destroyed by any of its holders.
+	 * @return true, if the referenced session was destroyed, false otherwise.
+	 */
+	public boolean isDestroyed() {
+		return this.destroyed;
+	}
+
+	/**
+	 * Returns a future that completes when the referenced session was closed, and invalidated, if destroyed, by its last holder.
+	 * @return a future that completes when the referenced session was closed
+	 */
+	public Future<Void> closed() {
+		return this.closed.future();
+	}
+
+	/**
+	 * Attempts to acquire this reference for an additional holder.
+	 * @return true, if this reference was acquired, false if it was already released by all of its holders.
+	 */
+	public boolean acquire() {
+		int holders = this.holders.get();
+		while (holders > 0) {
+			int current = this.holders.compareAndExchange(holders, holders + 1);
+			if (current == holders) {
+				return true;
+			}
+			holders = current;
+		}
+		return false;
+	}
+
+	/**
+	 * Prevents subsequent requests from acquiring this reference, e.g. if the referenced session was invalidated or its identifier regenerated.
+	 */
+	public void detach() {
+		this.detachTask.accept(this);
+	}
+
+	/**
+	 * Releases this reference on behalf of a holder, closing the referenced session if this was its last holder.
+	 * If destroyed, the referenced session is invalidated before it is closed.
+	 */
+	public void release() {
+		if (this.holders.decrementAndGet() == 0) {
+			// A destroyed reference remains attached until closed, so that subsequent requests can wait for its invalidation
+			try {
+				this.close();
+			} catch (RuntimeException | Error e) {
+				this.detach();
+				this.closed.tryFail(e);
+				throw e;
+			}
+			this.detach();
+			this.closed.tryComplete();
+		}
+	}
+
+	private void close() {
+		long stamp = this.lock.readLock();
+		try {
+			Session<Void> session = this.session;
+			if (session != null) {
+				try {
+					if (this.destroyed && session.isValid()) {
+						session.invalidate();
+					}
+				} finally {
+					session.close();
+				}
+			}
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+}
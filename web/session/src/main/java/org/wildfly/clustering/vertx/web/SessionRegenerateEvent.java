@@ -0,0 +1,20 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event emitted when a request copies an existing session to a new identifier.
+ */
+@Name("org.wildfly.clustering.vertx.web.SessionRegenerate")
+@Label("Session Regenerate")
+@Description("Copies an existing session to a new identifier.")
+class SessionRegenerateEvent extends SessionEvent {
+	@Label("New Session Identifier Hash")
+	int newSessionIdHash;
+}
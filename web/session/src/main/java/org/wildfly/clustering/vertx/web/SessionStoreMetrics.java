@@ -0,0 +1,65 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+/**
+ * Records the metrics of a distributable session store.
+ * Durations are expressed in nanoseconds.
+ */
+public interface SessionStoreMetrics {
+	/** Metrics that record nothing */
+	SessionStoreMetrics NONE = new SessionStoreMetrics() {
+	};
+
+	/**
+	 * Records the loading of a session, on behalf of one or more concurrent requests.
+	 * @param found indicates whether a valid session was found
+	 * @param nanos the duration of the load
+	 */
+	default void sessionLoaded(boolean found, long nanos) {
+	}
+
+	/**
+	 * Records the creation of a new session, at the end of the request that created it.
+	 * @param nanos the duration of the creation
+	 */
+	default void sessionCreated(long nanos) {
+	}
+
+	/**
+	 * Records the commit of an existing session, at the end of a request.
+	 * @param nanos the duration of the commit
+	 */
+	default void sessionCommitted(long nanos) {
+	}
+
+	/**
+	 * Records the commit of an existing session whose identifier was regenerated, at the end of a request.
+	 * @param nanos the duration of the commit, including the copying of the session to its new identifier
+	 */
+	default void sessionRegenerated(long nanos) {
+	}
+
+	/**
+	 * Records the invalidation of a destroyed session.
+	 * @param nanos the duration of the invalidation
+	 */
+	default void sessionDestroyed(long nanos) {
+	}
+
+	/**
+	 * Records the closing of a session store.
+	 * @param nanos the duration spent waiting for in-flight sessions to close
+	 */
+	default void storeClosed(long nanos) {
+	}
+
+	/**
+	 * Records the marshalling of a session attribute, or of all attributes of a session, depending on the configured granularity.
+	 * @param bytes the number of bytes written
+	 */
+	default void attributeMarshalled(long bytes) {
+	}
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import io.vertx.core.Vertx;
+
+/**
+ * Creates the metrics of a distributable session store.
+ * Implementations are loaded via {@link java.util.ServiceLoader}, and only used if metrics are enabled for a given Vert.x instance.
+ */
+public interface SessionStoreMetricsFactory {
+
+	/**
+	 * Creates the metrics of the session store of the specified deployment.
+	 * @param vertx a Vert.x instance with metrics enabled
+	 * @param deploymentName the deployment name of a session store
+	 * @return the metrics of a session store
+	 */
+	SessionStoreMetrics createMetrics(Vertx vertx, String deploymentName);
+}
@@ -4,6 +4,7 @@
  */
 package org.wildfly.clustering.vertx.web;
 
+import io.vertx.core.Future;
 import io.vertx.ext.web.Session;
 
 /**
@@ -17,6 +18,14 @@ public interface VertxSession extends Session, AutoCloseable {
 		this.close();
 	}
 
+	/**
+	 * Closes this session, without blocking the caller.
+	 * @return a future that completes when any changes to this session were committed.
+	 */
+	Future<Void> closeAsync();
+
 	@Override
-	void close();
+	default void close() {
+		this.closeAsync();
+	}
 }
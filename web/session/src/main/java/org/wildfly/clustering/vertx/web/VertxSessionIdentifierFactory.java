@@ -7,6 +7,7 @@ package org.wildfly.clustering.vertx.web;
 import java.util.HexFormat;
 
 import io.vertx.core.Context;
+import io.vertx.core.Vertx;
 import io.vertx.ext.auth.prng.VertxContextPRNG;
 import io.vertx.ext.web.handler.SessionHandler;
 
@@ -20,16 +21,47 @@ public class VertxSessionIdentifierFactory implements Supplier<String> {
 	/** The name of the property used to configure the session identifier length */
 	public static final String SESSION_ID_LENGTH = "sessionIdentifierLength";
 
+	// The default length must exceed SessionHandler.DEFAULT_SESSIONID_MIN_LENGTH, see below
+	private static final int DEFAULT_SESSION_ID_LENGTH = SessionHandler.DEFAULT_SESSIONID_MIN_LENGTH + 2;
+
 	private final VertxContextPRNG random;
-	private int bytes;
+	private final int bytes;
 	private final HexFormat hex = HexFormat.of().withLowerCase();
 
+	/**
+	 * Creates a session identifier factory that is not bound to any context, but instead uses the context of the calling thread, if any.
+	 * Such a factory may be shared by the session stores of multiple contexts, e.g. of multiple verticle instances, or even of multiple Vert.x instances.
+	 */
+	public VertxSessionIdentifierFactory() {
+		this.random = null;
+		this.bytes = 0;
+	}
+
 	/**
 	 * Creates a session identifier factory.
 	 * @param context the associated vert.x context
 	 */
 	public VertxSessionIdentifierFactory(Context context) {
 		this.random = VertxContextPRNG.current(context);
+		this.bytes = bytes(context);
+	}
+
+	@Override
+	public String get() {
+		VertxContextPRNG random = this.random;
+		int length = this.bytes;
+		if (random == null) {
+			Context context = Vertx.currentContext();
+			// Outside of a context, Vert.x falls back to a new PRNG
+			random = (context != null) ? VertxContextPRNG.current(context) : VertxContextPRNG.current();
+			length = (context != null) ? bytes(context) : DEFAULT_SESSION_ID_LENGTH / 2;
+		}
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return this.hex.formatHex(bytes);
+	}
+
+	private static int bytes(Context context) {
 		// N.B. The logic here replicates the behavior of io.vertx.ext.web.sstore.AbstractSession
 		// The Vert.x javadoc for {@link SessionHandler#DEFAULT_SESSIONID_MIN_LENGTH} links to:
 		// https://cheatsheetseries.owasp.org/cheatsheets/Session_Management_Cheat_Sheet.html#session-id-length
@@ -37,13 +69,6 @@ public class VertxSessionIdentifierFactory implements Supplier<String> {
 		// However, SessionHandlerImpl requires the string length to exceed this length.
 		// Therefore, the value specified via SessionHandler.setMinLength(...) is not actually a minimum length, but rather a maximum "insufficient length"
 		// Consequently, for a session ID to be accepted by SessionHandlerImpl.handle(...), the default value of our sessionIdentifierLength must exceed SessionHandler.DEFAULT_SESSIONID_MIN_LENGTH
-		this.bytes = context.config().getInteger(SESSION_ID_LENGTH, SessionHandler.DEFAULT_SESSIONID_MIN_LENGTH + 2) / 2;
-	}
-
-	@Override
-	public String get() {
-		byte[] bytes = new byte[this.bytes];
-		this.random.nextBytes(bytes);
-		return this.hex.formatHex(bytes);
+		return context.config().getInteger(SESSION_ID_LENGTH, DEFAULT_SESSION_ID_LENGTH) / 2;
 	}
 }
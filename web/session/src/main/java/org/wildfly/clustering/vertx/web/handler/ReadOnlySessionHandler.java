@@ -0,0 +1,82 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web.handler;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.Cookie;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.handler.impl.UserHolder;
+import io.vertx.ext.web.impl.RoutingContextInternal;
+
+import org.wildfly.clustering.vertx.web.DistributableSessionStore;
+
+/**
+ * A handler that exposes a read-only session to routes that never mutate it, in lieu of a {@link SessionHandler}.
+ * Unlike a {@link SessionHandler}, this handler never creates a session, nor does it lock or commit an existing session.
+ * Any user stored within the session is restored to the routing context.
+ */
+public class ReadOnlySessionHandler implements Handler<RoutingContext> {
+	// Must match the key used by io.vertx.ext.web.handler.impl.SessionHandlerImpl
+	private static final String SESSION_USER_HOLDER_KEY = "__vertx.userHolder";
+
+	private final DistributableSessionStore store;
+	private final String cookieName;
+
+	/**
+	 * Creates a read-only session handler using the default session cookie name.
+	 * @param store a distributable session store
+	 */
+	public ReadOnlySessionHandler(DistributableSessionStore store) {
+		this(store, SessionHandler.DEFAULT_SESSION_COOKIE_NAME);
+	}
+
+	/**
+	 * Creates a read-only session handler using the specified session cookie name.
+	 * @param store a distributable session store
+	 * @param cookieName the name of the session cookie
+	 */
+	public ReadOnlySessionHandler(DistributableSessionStore store, String cookieName) {
+		this.store = store;
+		this.cookieName = cookieName;
+	}
+
+	@Override
+	public void handle(RoutingContext context) {
+		HttpServerRequest request = context.request();
+		Cookie cookie = request.getCookie(this.cookieName);
+		if (cookie == null) {
+			context.next();
+			return;
+		}
+		// We are not interested in the request body
+		boolean ended = request.isEnded();
+		if (!ended) {
+			request.pause();
+		}
+		this.store.getReadOnly(cookie.getValue()).onComplete(result -> {
+			if (!ended) {
+				request.resume();
+			}
+			if (result.failed()) {
+				context.fail(result.cause());
+				return;
+			}
+			Session session = result.result();
+			if (session != null) {
+				((RoutingContextInternal) context).setSession(session);
+				// Close session once the response has ended, or the connection was closed
+				context.addEndHandler(end -> this.store.put(session));
+				UserHolder holder = session.get(SESSION_USER_HOLDER_KEY);
+				if (holder != null) {
+					holder.refresh(context);
+				}
+			}
+			context.next();
+		});
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web.handler;
+
+import java.lang.reflect.Field;
+
+import io.vertx.ext.auth.User;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.impl.UserHolder;
+
+import org.wildfly.clustering.vertx.web.SessionAttributeChangeDetector;
+
+/**
+ * Detects changes to the user referenced by a {@link UserHolder} session attribute.
+ * Vert.x stores a new {@link UserHolder} in the session whenever a user is set on the routing context, even if the user did not change.
+ * Since {@link UserHolderImmutability} treats a {@link UserHolder} as immutable, a session with attribute change detection enabled uses this detector to determine when a {@link UserHolder} needs to be written.
+ */
+public enum UserHolderChangeDetector {
+	/** Singleton instance */
+	INSTANCE;
+
+	// Digest of a user holder that does not reference a user
+	private static final byte[] NO_USER = new byte[0];
+	// Yuck - user/context fields are not accessible!!!
+	private static final Field CONTEXT_FIELD = findField(RoutingContext.class);
+	private static final Field USER_FIELD = findField(User.class);
+
+	/**
+	 * Indicates whether the specified session attribute is a user holder.
+	 * @param value a session attribute value
+	 * @return true, if the specified session attribute is a user holder, false otherwise.
+	 */
+	public boolean isUserHolder(Object value) {
+		return value instanceof UserHolder;
+	}
+
+	/**
+	 * Returns the user referenced by the specified holder.
+	 * @param holder a user holder
+	 * @return a user, or null, if the specified holder does not reference a user.
+	 */
+	public User getUser(UserHolder holder) {
+		try {
+			RoutingContext context = (RoutingContext) CONTEXT_FIELD.get(holder);
+			User user = (context != null) ? context.user() : null;
+			return (user != null) ? user : (User) USER_FIELD.get(holder);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Computes a digest of the marshalled form of the user referenced by the specified user holder.
+	 * @param holder a user holder
+	 * @param detector a change detector, whose marshaller will digest the referenced user
+	 * @return a digest of the referenced user
+	 */
+	public byte[] digest(Object holder, SessionAttributeChangeDetector detector) {
+		User user = this.getUser((UserHolder) holder);
+		return (user != null) ? detector.digest(user) : NO_USER;
+	}
+
+	/**
+	 * Indicates whether the principal, attributes, or authorizations of the user referenced by the specified user holder changed since the specified digest was computed.
+	 * @param holder a user holder
+	 * @param digest a digest computed via {@link #digest(Object, SessionAttributeChangeDetector)}
+	 * @param detector the change detector used to compute the specified digest
+	 * @return true, if the referenced user changed, false otherwise.
+	 */
+	public boolean isChanged(Object holder, byte[] digest, SessionAttributeChangeDetector detector) {
+		User user = this.getUser((UserHolder) holder);
+		if ((user == null) || (digest == NO_USER)) {
+			return (user != null) || (digest != NO_USER);
+		}
+		return detector.isChanged(user, digest);
+	}
+
+	/**
+	 * Indicates whether the specified user holders reference the same user instance.
+	 * @param holder a user holder
+	 * @param otherHolder another user holder
+	 * @return true, if both holders reference the same user, false otherwise.
+	 */
+	public boolean isSameUser(Object holder, Object otherHolder) {
+		return this.getUser((UserHolder) holder) == this.getUser((UserHolder) otherHolder);
+	}
+
+	private static Field findField(Class<?> type) {
+		for (Field field : UserHolder.class.getDeclaredFields()) {
+			if (field.getType() == type) {
+				field.setAccessible(true);
+				return field;
+			}
+		}
+		throw new IllegalArgumentException(type.getName());
+	}
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web.handler;
+
+import io.vertx.ext.web.handler.impl.UserHolder;
+
+import org.kohsuke.MetaInfServices;
+import org.wildfly.clustering.server.immutable.Immutability;
+
+/**
+ * Treats a {@link UserHolder} session attribute as immutable, so that it is not written to its session whenever it is read.
+ * Vert.x instead writes a new {@link UserHolder} on every request of an authenticated user, which, if attribute change detection is enabled, is skipped unless {@link UserHolderChangeDetector} detects a change to the referenced user.
+ */
+@MetaInfServices(Immutability.class)
+public class UserHolderImmutability implements Immutability {
+
+	@Override
+	public boolean test(Object object) {
+		return object instanceof UserHolder;
+	}
+}
@@ -5,7 +5,6 @@
 package org.wildfly.clustering.vertx.web.handler;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
@@ -44,10 +43,6 @@ public enum UserHolderMarshaller implements ProtoStreamMarshaller<UserHolder> {
 
 	private static final int USER_INDEX = 1;
 
-	// Yuck - user/context fields are not accessible!!!
-	private static final Field CONTEXT_FIELD = findField(RoutingContext.class);
-	private static final Field USER_FIELD = findField(User.class);
-
 	@Override
 	public Class<? extends UserHolder> getJavaClass() {
 		return UserHolder.class;
@@ -68,26 +63,7 @@ public enum UserHolderMarshaller implements ProtoStreamMarshaller<UserHolder> {
 
 	@Override
 	public void writeTo(ProtoStreamWriter writer, UserHolder holder) throws IOException {
-		try {
-			RoutingContext context = (RoutingContext) CONTEXT_FIELD.get(holder);
-			User user = context.user();
-			if (user == null) {
-				user = (User) USER_FIELD.get(holder);
-			}
-			writer.writeAny(USER_INDEX, user);
-		} catch (IllegalAccessException e) {
-			throw new IllegalStateException(e);
-		}
-	}
-
-	private static Field findField(Class<?> type) {
-		for (Field field : UserHolder.class.getDeclaredFields()) {
-			if (field.getType() == type) {
-				field.setAccessible(true);
-				return field;
-			}
-		}
-		throw new IllegalArgumentException(type.getName());
+		writer.writeAny(USER_INDEX, UserHolderChangeDetector.INSTANCE.getUser(holder));
 	}
 
 	private static class UserRoutingContext implements RoutingContext {
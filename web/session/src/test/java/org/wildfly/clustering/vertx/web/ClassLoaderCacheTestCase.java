@@ -0,0 +1,40 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for {@link ClassLoaderCache}.
+ */
+public class ClassLoaderCacheTestCase {
+
+	@Test
+	public void test() throws Exception {
+		AtomicInteger count = new AtomicInteger();
+		Function<ClassLoader, Object> cache = new ClassLoaderCache<>(loader -> {
+			count.incrementAndGet();
+			return new Object();
+		});
+		ClassLoader loader = this.getClass().getClassLoader();
+
+		Object value = cache.apply(loader);
+
+		assertThat(cache.apply(loader)).isSameAs(value);
+		assertThat(count.get()).isEqualTo(1);
+
+		try (URLClassLoader otherLoader = new URLClassLoader(new URL[0], loader)) {
+			assertThat(cache.apply(otherLoader)).isNotSameAs(value);
+			assertThat(count.get()).isEqualTo(2);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.wildfly.clustering.marshalling.ByteBufferMarshaller;
+import org.wildfly.clustering.marshalling.java.JavaByteBufferMarshaller;
+
+/**
+ * Unit test for {@link CompressingByteBufferMarshaller}.
+ */
+public class CompressingByteBufferMarshallerTestCase {
+	private static final int THRESHOLD = 256;
+
+	private final ByteBufferMarshaller marshaller = new JavaByteBufferMarshaller(Thread.currentThread().getContextClassLoader(), null);
+	private final ByteBufferMarshaller subject = new CompressingByteBufferMarshaller(this.marshaller, THRESHOLD);
+
+	@Test
+	public void small() throws IOException {
+		String value = "foo";
+
+		ByteBuffer buffer = this.subject.write(value);
+
+		assertThat(header(buffer)).isEqualTo((byte) CompressingByteBufferMarshaller.UNCOMPRESSED);
+		assertThat(buffer.remaining()).isEqualTo(this.marshaller.write(value).remaining() + CompressingByteBufferMarshaller.MAGIC.length + 1);
+		assertThat(this.subject.read(buffer)).isEqualTo(value);
+	}
+
+	@Test
+	public void large() throws IOException {
+		String value = "{\"foo\":\"bar\"}".repeat(100);
+
+		ByteBuffer buffer = this.subject.write(value);
+
+		assertThat(header(buffer)).isEqualTo((byte) CompressingByteBufferMarshaller.DEFLATED);
+		assertThat(buffer.remaining()).isLessThan(this.marshaller.write(value).remaining() / 5);
+		assertThat(this.subject.read(buffer)).isEqualTo(value);
+	}
+
+	@Test
+	public void threshold() throws IOException {
+		String value = "{\"foo\":\"bar\"}".repeat(100);
+
+		// Objects compressed with a different threshold remain readable
+		ByteBuffer buffer = new CompressingByteBufferMarshaller(this.marshaller, Integer.MAX_VALUE).write(value);
+
+		assertThat(header(buffer)).isEqualTo((byte) CompressingByteBufferMarshaller.UNCOMPRESSED);
+		assertThat(this.subject.read(buffer)).isEqualTo(value);
+	}
+
+	@Test
+	public void uncompressed() throws IOException {
+		// Objects marshalled prior to enabling compression remain readable
+		for (Object value : List.of("foo", "{\"foo\":\"bar\"}".repeat(100), 0, Map.of("foo", "bar"))) {
+			ByteBuffer buffer = this.marshaller.write(value);
+
+			assertThat(this.subject.read(buffer)).isEqualTo(value);
+		}
+	}
+
+	private static byte header(ByteBuffer buffer) {
+		byte[] prefix = new byte[CompressingByteBufferMarshaller.MAGIC.length];
+		buffer.duplicate().get(prefix);
+		assertThat(prefix).isEqualTo(CompressingByteBufferMarshaller.MAGIC);
+		return buffer.get(buffer.position() + prefix.length);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.clustering.function.Supplier;
+import org.wildfly.clustering.session.SessionManager;
+import org.wildfly.clustering.vertx.web.DistributableSessionTestCase.TestSession;
+
+/**
+ * Unit test for {@link DeferredSession}.
+ */
+public class DeferredSessionTestCase {
+	private static final String ID = "session";
+	private static final String NEW_ID = "regenerated";
+	private static final long TIMEOUT = Duration.ofMinutes(30).toMillis();
+
+	private final Vertx vertx = Vertx.vertx();
+	private final io.vertx.core.Context context = this.vertx.getOrCreateContext();
+	private final Map<String, TestSession> sessions = new ConcurrentHashMap<>();
+	private final SessionManager<Void> manager = DistributableSessionTestCase.proxy(SessionManager.class, (proxy, method, args) -> switch (method.getName()) {
+		case "createSession" -> this.createSession((String) args[0]).getSession();
+		case "getIdentifierFactory" -> Supplier.of(NEW_ID);
+		default -> throw new UnsupportedOperationException(method.getName());
+	});
+	private final LifecycleGate gate = new LifecycleGate();
+
+	@AfterEach
+	public void close() throws Exception {
+		this.vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void create() throws Exception {
+		DeferredSession session = this.createDeferredSession();
+
+		session.put("foo", "bar");
+		session.put("baz", "qux");
+		session.remove("baz");
+
+		assertThat((Object) session.get("foo")).isEqualTo("bar");
+		// Creation is deferred until closed
+		assertThat(this.sessions).isEmpty();
+
+		await(session.closeAsync());
+
+		TestSession created = this.sessions.get(ID);
+		assertThat(created).isNotNull();
+		assertThat(created.attributes).containsExactly(Map.entry("foo", "bar"));
+		assertThat(created.lastAccessUpdates).hasValue(1);
+		assertThat(created.closed).hasValue(1);
+		assertThat(this.sessions).hasSize(1);
+		// Subsequent close is a no-op
+		await(session.closeAsync());
+		assertThat(created.closed).hasValue(1);
+		assertThat(this.gate.close(Duration.ZERO)).isTrue();
+	}
+
+	@Test
+	public void regenerate() throws Exception {
+		DeferredSession session = this.createDeferredSession();
+
+		session.put("foo", "bar");
+		session.regenerateId();
+
+		assertThat(session.isRegenerated()).isTrue();
+		assertThat(session.id()).isEqualTo(NEW_ID);
+		assertThat(session.oldId()).isEqualTo(ID);
+
+		await(session.closeAsync());
+
+		// Only the regenerated session is created
+		assertThat(this.sessions).containsOnlyKeys(NEW_ID);
+		assertThat(this.sessions.get(NEW_ID).attributes).containsEntry("foo", "bar");
+		assertThat(this.gate.close(Duration.ZERO)).isTrue();
+	}
+
+	@Test
+	public void destroy() throws Exception {
+		DeferredSession session = this.createDeferredSession();
+
+		session.put("foo", "bar");
+		session.destroy();
+
+		assertThat(session.isDestroyed()).isTrue();
+		assertThat(session.isEmpty()).isTrue();
+
+		await(session.closeAsync());
+
+		// Neither created, nor holding the gate
+		assertThat(this.sessions).isEmpty();
+		assertThat(this.gate.close(Duration.ZERO)).isTrue();
+	}
+
+	private DeferredSession createDeferredSession() {
+		return new DeferredSession(this.manager, this.context, ID, TIMEOUT, this.gate.enter(), UnaryOperator.identity());
+	}
+
+	private TestSession createSession(String id) {
+		TestSession session = new TestSession(id);
+		this.sessions.put(id, session);
+		return session;
+	}
+
+	private static <T> T await(Future<T> future) throws Exception {
+		return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,524 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.clustering.function.Supplier;
+import org.wildfly.clustering.marshalling.java.JavaByteBufferMarshaller;
+import org.wildfly.clustering.server.immutable.Immutability;
+import org.wildfly.clustering.session.Session;
+import org.wildfly.clustering.session.SessionManager;
+import org.wildfly.clustering.session.SessionMetaData;
+
+/**
+ * Unit test for {@link DistributableSession}s sharing a {@link SessionReference}.
+ */
+public class DistributableSessionTestCase {
+	private static final String ID = "session";
+	private static final String NEW_ID = "regenerated";
+
+	private final Vertx vertx = Vertx.vertx();
+	private final io.vertx.core.Context context = this.vertx.getOrCreateContext();
+	private final Map<String, TestSession> sessions = new ConcurrentHashMap<>();
+	private final SessionManager<Void> manager = proxy(SessionManager.class, (proxy, method, args) -> switch (method.getName()) {
+		case "createSession" -> this.createSession((String) args[0]).getSession();
+		case "getIdentifierFactory" -> Supplier.of(NEW_ID);
+		default -> throw new UnsupportedOperationException(method.getName());
+	});
+	private final AtomicInteger detached = new AtomicInteger();
+	private final AtomicInteger exited = new AtomicInteger();
+
+	@AfterEach
+	public void close() throws Exception {
+		this.vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void share() throws Exception {
+		TestSession session = this.createSession(ID);
+		SessionReference reference = this.load(session, UnaryOperator.identity());
+		List<DistributableSession> holders = this.createHolders(reference, 2);
+		DistributableSession session1 = holders.get(0);
+		DistributableSession session2 = holders.get(1);
+
+		session1.put("foo", "bar");
+
+		assertThat((Object) session2.get("foo")).isEqualTo("bar");
+
+		await(session1.closeAsync());
+
+		assertThat(session.closed).hasValue(0);
+		assertThat(reference.closed().isComplete()).isFalse();
+		// Committed by each holder
+		int lastAccessUpdates = session.lastAccessUpdates.get();
+		assertThat(lastAccessUpdates).isPositive();
+
+		session2.remove("foo");
+
+		await(session2.closeAsync());
+
+		assertThat(session.closed).hasValue(1);
+		assertThat(session.valid).isTrue();
+		assertThat(session.attributes).isEmpty();
+		assertThat(session.lastAccessUpdates.get()).isGreaterThan(lastAccessUpdates);
+		assertThat(reference.closed().isComplete()).isTrue();
+		assertThat(this.detached).hasValue(1);
+		assertThat(this.exited).hasValue(2);
+	}
+
+	@Test
+	public void concurrentMutations() throws Exception {
+		TestSession session = this.createSession(ID);
+		// Packed attributes are mutated via read-modify-write of a single attribute
+		SessionReference reference = this.load(session, attributes -> new PackedSessionAttributes(attributes, new JavaByteBufferMarshaller(Thread.currentThread().getContextClassLoader(), null), DistributableSessionManagerFactoryConfiguration.DEFAULT_ATTRIBUTE_SIZE_THRESHOLD));
+		List<DistributableSession> holders = this.createHolders(reference, 2);
+		int count = 100;
+
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (DistributableSession holder : holders) {
+			for (int i = 0; i < count; ++i) {
+				String key = holder.hashCode() + "." + i;
+				Integer value = i;
+				futures.add(CompletableFuture.runAsync(() -> holder.put(key, value)));
+			}
+		}
+		CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+		for (DistributableSession holder : holders) {
+			assertThat(holder.data()).hasSize(holders.size() * count);
+			for (int i = 0; i < count; ++i) {
+				assertThat((Object) holder.get(holders.get(0).hashCode() + "." + i)).isEqualTo(i);
+				assertThat((Object) holder.get(holders.get(1).hashCode() + "." + i)).isEqualTo(i);
+			}
+		}
+
+		for (DistributableSession holder : holders) {
+			await(holder.closeAsync());
+		}
+
+		assertThat(session.closed).hasValue(1);
+	}
+
+	@Test
+	public void destroy() throws Exception {
+		TestSession session = this.createSession(ID);
+		SessionReference reference = this.load(session, UnaryOperator.identity());
+		List<DistributableSession> holders = this.createHolders(reference, 2);
+		DistributableSession session1 = holders.get(0);
+		DistributableSession session2 = holders.get(1);
+
+		session2.put("foo", "bar");
+		session1.destroy();
+
+		// Destruction is visible to all holders, but does not invalidate the session from under them
+		assertThat(session1.isDestroyed()).isTrue();
+		assertThat(session2.isDestroyed()).isTrue();
+		assertThat(session.valid).isTrue();
+		assertThat((Object) session2.get("foo")).isEqualTo("bar");
+
+		await(session1.closeAsync());
+
+		assertThat(session.valid).isTrue();
+		assertThat(session.closed).hasValue(0);
+		assertThat(reference.closed().isComplete()).isFalse();
+
+		await(session2.closeAsync());
+
+		// Invalidated by the last holder, without committing
+		assertThat(session.valid).isFalse();
+		assertThat(session.closed).hasValue(1);
+		assertThat(session.lastAccessUpdates).hasValue(0);
+		assertThat(reference.closed().isComplete()).isTrue();
+		assertThat(this.exited).hasValue(2);
+	}
+
+	@Test
+	public void regenerate() throws Exception {
+		TestSession session = this.createSession(ID);
+		SessionReference reference = this.load(session, UnaryOperator.identity());
+		List<DistributableSession> holders = this.createHolders(reference, 2);
+		DistributableSession session1 = holders.get(0);
+		DistributableSession session2 = holders.get(1);
+
+		session1.put("foo", "bar");
+		session1.regenerateId();
+
+		assertThat(session1.isRegenerated()).isTrue();
+		assertThat(session1.id()).isEqualTo(NEW_ID);
+		assertThat(session1.oldId()).isEqualTo(ID);
+		assertThat(session2.isRegenerated()).isFalse();
+		// Deferred until closed
+		assertThat(this.sessions).doesNotContainKey(NEW_ID);
+
+		await(session1.closeAsync());
+
+		TestSession newSession = this.sessions.get(NEW_ID);
+		assertThat(newSession).isNotNull();
+		assertThat(newSession.attributes).containsEntry("foo", "bar");
+		assertThat(newSession.valid).isTrue();
+		assertThat(newSession.closed).hasValue(0);
+		assertThat(session.valid).isFalse();
+		assertThat(session.closed).hasValue(1);
+		// Subsequent requests for the old identifier must not share the new session
+		assertThat(this.detached).hasValue(1);
+
+		// Remaining holder now references the new session
+		session2.put("baz", "qux");
+		assertThat(newSession.attributes).containsEntry("baz", "qux");
+		assertThat(session2.isDestroyed()).isFalse();
+
+		await(session2.closeAsync());
+
+		assertThat(newSession.valid).isTrue();
+		assertThat(newSession.closed).hasValue(1);
+		assertThat(reference.closed().isComplete()).isTrue();
+	}
+
+	@Test
+	public void lastAccessThreshold() throws Exception {
+		TestSession session = this.createSession(ID);
+		SessionReference reference = this.load(session, UnaryOperator.identity());
+		// Persisted last access time is recent, relative to the threshold
+		DistributableSession holder = this.createHolders(reference, 1, false, Duration.ofMinutes(1)).get(0);
+
+		holder.put("foo", "bar");
+
+		await(holder.closeAsync());
+
+		assertThat(session.lastAccessUpdates).hasValue(0);
+		assertThat(session.attributes).containsEntry("foo", "bar");
+		assertThat(session.closed).hasValue(1);
+	}
+
+	@Test
+	public void lastAccessThresholdRegenerate() throws Exception {
+		TestSession session = this.createSession(ID);
+		SessionReference reference = this.load(session, UnaryOperator.identity());
+		DistributableSession holder = this.createHolders(reference, 1, false, Duration.ofMinutes(1)).get(0);
+
+		holder.regenerateId();
+
+		await(holder.closeAsync());
+
+		// The last access time of a regenerated session is always persisted
+		TestSession newSession = this.sessions.get(NEW_ID);
+		assertThat(newSession.lastAccessUpdates.get()).isPositive();
+		assertThat(session.lastAccessUpdates).hasValue(0);
+	}
+
+	@Test
+	public void attributeChangeDetection() throws Exception {
+		TestSession session = this.createSession(ID);
+		session.attributes.put("unchanged", new ArrayList<>(List.of("foo")));
+		session.attributes.put("changed", new ArrayList<>(List.of("foo")));
+		session.attributes.put("immutable", "foo");
+		CountingAttributes attributes = new CountingAttributes();
+		SessionReference reference = this.load(session, attributes);
+		SessionAttributeChangeDetector changeDetector = new SessionAttributeChangeDetector(Immutability.getDefault(), new JavaByteBufferMarshaller(Thread.currentThread().getContextClassLoader(), null));
+		DistributableSession holder = this.createHolders(reference, 1, false, Duration.ZERO, changeDetector).get(0);
+
+		assertThat((List<String>) holder.get("unchanged")).containsExactly("foo");
+		assertThat((Object) holder.get("immutable")).isEqualTo("foo");
+		List<String> changed = holder.get("changed");
+		changed.add("bar");
+
+		await(holder.closeAsync());
+
+		// Only the mutable attribute whose marshalled form changed is written
+		assertThat(attributes.writes).containsExactly("changed");
+		assertThat(session.closed).hasValue(1);
+	}
+
+	@Test
+	public void attributeChangeDetectionUntracked() throws Exception {
+		TestSession session = this.createSession(ID);
+		session.attributes.put("mutable", new ArrayList<>(List.of("foo")));
+		session.attributes.put("immutable", "foo");
+		CountingAttributes attributes = new CountingAttributes();
+		SessionReference reference = this.load(session, attributes);
+		SessionAttributeChangeDetector changeDetector = new SessionAttributeChangeDetector(Immutability.getDefault(), new JavaByteBufferMarshaller(Thread.currentThread().getContextClassLoader(), null));
+		DistributableSession holder = this.createHolders(reference, 1, false, Duration.ZERO, changeDetector).get(0);
+
+		// Reads via the returned map cannot be tracked
+		assertThat(holder.data()).hasSize(2);
+
+		await(holder.closeAsync());
+
+		// So all mutable attributes are written
+		assertThat(attributes.writes).containsExactly("mutable");
+	}
+
+	@Test
+	public void cacheAttributes() throws Exception {
+		TestSession session = this.createSession(ID);
+		session.attributes.put("foo", "bar");
+		CountingAttributes attributes = new CountingAttributes();
+		SessionReference reference = this.load(session, attributes);
+		DistributableSession holder = this.createHolders(reference, 1, true, Duration.ZERO).get(0);
+
+		assertThat((Object) holder.get("foo")).isEqualTo("bar");
+		assertThat((Object) holder.get("foo")).isEqualTo("bar");
+		// Absent attributes are also cached
+		assertThat((Object) holder.get("missing")).isNull();
+		assertThat((Object) holder.get("missing")).isNull();
+		assertThat(attributes.reads).hasValue(2);
+
+		// Mutation invalidates its cached attribute
+		holder.put("foo", "baz");
+		assertThat((Object) holder.get("foo")).isEqualTo("baz");
+		assertThat(attributes.reads).hasValue(3);
+		holder.remove("foo");
+		assertThat((Object) holder.get("foo")).isNull();
+		assertThat(attributes.reads).hasValue(4);
+
+		// Attributes mutable via the returned map are no longer cached
+		holder.data().put("foo", "qux");
+		assertThat((Object) holder.get("foo")).isEqualTo("qux");
+		assertThat((Object) holder.get("foo")).isEqualTo("qux");
+		assertThat(attributes.reads).hasValue(6);
+
+		await(holder.closeAsync());
+
+		assertThat(session.attributes).containsEntry("foo", "qux");
+		assertThat(session.closed).hasValue(1);
+	}
+
+	@Test
+	public void cacheAttributesDisabled() throws Exception {
+		TestSession session = this.createSession(ID);
+		session.attributes.put("foo", "bar");
+		CountingAttributes attributes = new CountingAttributes();
+		SessionReference reference = this.load(session, attributes);
+		DistributableSession holder = this.createHolders(reference, 1).get(0);
+
+		assertThat((Object) holder.get("foo")).isEqualTo("bar");
+		assertThat((Object) holder.get("foo")).isEqualTo("bar");
+		assertThat(attributes.reads).hasValue(2);
+
+		await(holder.closeAsync());
+	}
+
+	@Test
+	public void cacheAttributesRegenerate() throws Exception {
+		TestSession session = this.createSession(ID);
+		session.attributes.put("foo", "bar");
+		CountingAttributes attributes = new CountingAttributes();
+		SessionReference reference = this.load(session, attributes);
+		DistributableSession holder = this.createHolders(reference, 1, true, Duration.ZERO).get(0);
+
+		assertThat((Object) holder.get("foo")).isEqualTo("bar");
+		assertThat(attributes.reads).hasValue(1);
+
+		// Regeneration clears the cache
+		holder.regenerateId();
+		assertThat((Object) holder.get("foo")).isEqualTo("bar");
+		assertThat(attributes.reads).hasValue(2);
+
+		await(holder.closeAsync());
+
+		assertThat(this.sessions.get(NEW_ID).attributes).containsEntry("foo", "bar");
+	}
+
+	private SessionReference load(TestSession session, UnaryOperator<Map<String, Object>> attributesDecorator) throws Exception {
+		SessionReference reference = new SessionReference(detached -> this.detached.incrementAndGet(), attributesDecorator);
+		assertThat(await(reference.load(() -> Future.succeededFuture(session.getSession())))).isSameAs(reference);
+		return reference;
+	}
+
+	private List<DistributableSession> createHolders(SessionReference reference, int count) {
+		return this.createHolders(reference, count, false, Duration.ZERO);
+	}
+
+	private List<DistributableSession> createHolders(SessionReference reference, int count, boolean cacheAttributes, Duration lastAccessThreshold) {
+		return this.createHolders(reference, count, cacheAttributes, lastAccessThreshold, null);
+	}
+
+	private List<DistributableSession> createHolders(SessionReference reference, int count, boolean cacheAttributes, Duration lastAccessThreshold, SessionAttributeChangeDetector changeDetector) {
+		List<DistributableSession> holders = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			// A new reference is already acquired on behalf of its first holder
+			if ((i > 0) && !reference.acquire()) {
+				throw new IllegalStateException();
+			}
+			holders.add(reference.add(new DistributableSession(this.manager, this.context, reference, this.exited::incrementAndGet, cacheAttributes, lastAccessThreshold, changeDetector)));
+		}
+		return holders;
+	}
+
+	private TestSession createSession(String id) {
+		TestSession session = new TestSession(id);
+		this.sessions.put(id, session);
+		return session;
+	}
+
+	private static <T> T await(Future<T> future) throws Exception {
+		return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> T proxy(Class<?> targetClass, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(targetClass.getClassLoader(), new Class<?>[] { targetClass }, (proxy, method, args) -> {
+			if (method.getDeclaringClass() == Object.class) {
+				return switch (method.getName()) {
+					case "equals" -> proxy == args[0];
+					case "hashCode" -> System.identityHashCode(proxy);
+					default -> targetClass.getSimpleName();
+				};
+			}
+			if (method.isDefault()) {
+				return InvocationHandler.invokeDefault(proxy, method, args);
+			}
+			return handler.invoke(proxy, method, args);
+		});
+	}
+
+	// Decorates session attributes, counting reads of individual attributes
+	/**
+	 * Returns the value of the specified meta data accessor, resolving optional values by their generic type.
+	 * @param method a meta data method
+	 * @param maxIdle the maximum inactive interval
+	 * @param creationTime the creation time
+	 * @param lastAccessTime the last access time
+	 * @return the value of the specified meta data accessor
+	 */
+	static Object getMetaData(Method method, Duration maxIdle, Instant creationTime, Instant lastAccessTime) {
+		Class<?> returnType = method.getReturnType();
+		boolean lastAccess = method.getName().contains("LastAccess");
+		if (returnType == Optional.class) {
+			Type type = ((ParameterizedType) method.getGenericReturnType()).getActualTypeArguments()[0];
+			if (type == Duration.class) {
+				return method.getName().equals("getMaxIdle") ? Optional.of(maxIdle) : Optional.empty();
+			}
+			if (type == Instant.class) {
+				return lastAccess ? Optional.of(lastAccessTime) : Optional.empty();
+			}
+			if ((type instanceof ParameterizedType entryType) && (entryType.getRawType() == Map.Entry.class)) {
+				return lastAccess ? Optional.of(Map.entry(lastAccessTime, lastAccessTime)) : Optional.empty();
+			}
+			return Optional.empty();
+		}
+		if (returnType == Instant.class) {
+			return lastAccess ? lastAccessTime : creationTime;
+		}
+		if (returnType == Duration.class) {
+			return maxIdle;
+		}
+		if (returnType == boolean.class) {
+			return false;
+		}
+		if (returnType == void.class) {
+			return null;
+		}
+		throw new UnsupportedOperationException(method.getName());
+	}
+
+	static class CountingAttributes extends AbstractMap<String, Object> implements UnaryOperator<Map<String, Object>> {
+		final AtomicInteger reads = new AtomicInteger();
+		final List<String> writes = new CopyOnWriteArrayList<>();
+		private volatile Map<String, Object> attributes = Map.of();
+
+		@Override
+		public Map<String, Object> apply(Map<String, Object> attributes) {
+			this.attributes = attributes;
+			return this;
+		}
+
+		@Override
+		public Object get(Object key) {
+			this.reads.incrementAndGet();
+			return this.attributes.get(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return this.attributes.containsKey(key);
+		}
+
+		@Override
+		public Object put(String key, Object value) {
+			this.writes.add(key);
+			return this.attributes.put(key, value);
+		}
+
+		@Override
+		public Object remove(Object key) {
+			return this.attributes.remove(key);
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			return this.attributes.entrySet();
+		}
+	}
+
+	static class TestSession {
+		final String id;
+		final Map<String, Object> attributes = new ConcurrentHashMap<>();
+		final AtomicInteger closed = new AtomicInteger();
+		final AtomicInteger lastAccessUpdates = new AtomicInteger();
+		final Instant creationTime = Instant.now();
+		volatile boolean valid = true;
+		private final Session<Void> session;
+
+		TestSession(String id) {
+			this.id = id;
+			SessionMetaData metaData = proxy(SessionMetaData.class, this::invokeMetaData);
+			this.session = proxy(Session.class, (proxy, method, args) -> switch (method.getName()) {
+				case "getId" -> this.id;
+				case "isValid" -> this.valid;
+				case "invalidate" -> {
+					this.valid = false;
+					yield null;
+				}
+				case "close" -> {
+					this.closed.incrementAndGet();
+					yield null;
+				}
+				case "getAttributes" -> this.attributes;
+				case "getMetaData" -> metaData;
+				case "getContext" -> null;
+				default -> throw new UnsupportedOperationException(method.getName());
+			});
+		}
+
+		Session<Void> getSession() {
+			return this.session;
+		}
+
+		private Object invokeMetaData(Object proxy, Method method, Object[] args) {
+			if (method.getName().startsWith("setLastAccess")) {
+				this.lastAccessUpdates.incrementAndGet();
+				return null;
+			}
+			return getMetaData(method, Duration.ofMinutes(30), this.creationTime, this.creationTime);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.wildfly.clustering.session.ImmutableSessionMetaData;
+
+/**
+ * Unit test for {@link LastAccessThreshold}.
+ */
+public class LastAccessThresholdTestCase {
+	private static final Duration MAX_IDLE = Duration.ofMinutes(30);
+
+	private final Instant now = Instant.now();
+
+	@Test
+	public void disabled() {
+		// Every request updates the last access time
+		assertThat(LastAccessThreshold.isStale(Duration.ZERO, this.createMetaData(this.now), this.now)).isTrue();
+	}
+
+	@Test
+	public void recent() {
+		Duration threshold = Duration.ofMinutes(1);
+
+		assertThat(LastAccessThreshold.isStale(threshold, this.createMetaData(this.now), this.now)).isFalse();
+		assertThat(LastAccessThreshold.isStale(threshold, this.createMetaData(this.now.minus(threshold).plusMillis(1)), this.now)).isFalse();
+	}
+
+	@Test
+	public void stale() {
+		Duration threshold = Duration.ofMinutes(1);
+
+		assertThat(LastAccessThreshold.isStale(threshold, this.createMetaData(this.now.minus(threshold)), this.now)).isTrue();
+		assertThat(LastAccessThreshold.isStale(threshold, this.createMetaData(this.now.minus(MAX_IDLE)), this.now)).isTrue();
+	}
+
+	@Test
+	public void exceedsMaxIdle() {
+		// A threshold that would allow the session to expire while in use is ignored
+		assertThat(LastAccessThreshold.isStale(MAX_IDLE, this.createMetaData(this.now), this.now)).isTrue();
+		assertThat(LastAccessThreshold.isStale(MAX_IDLE.plusMinutes(1), this.createMetaData(this.now), this.now)).isTrue();
+	}
+
+	private ImmutableSessionMetaData createMetaData(Instant lastAccessTime) {
+		Instant creationTime = this.now.minus(MAX_IDLE.multipliedBy(2));
+		return DistributableSessionTestCase.proxy(ImmutableSessionMetaData.class, (proxy, method, args) -> DistributableSessionTestCase.getMetaData(method, MAX_IDLE, creationTime, lastAccessTime));
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for {@link LifecycleGate}.
+ */
+public class LifecycleGateTestCase {
+
+	@Test
+	public void closeWithoutEntrants() {
+		LifecycleGate gate = new LifecycleGate();
+
+		gate.enter().run();
+
+		assertThat(gate.close(Duration.ZERO)).isTrue();
+		assertThatThrownBy(gate::enter).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void closeTimeout() {
+		LifecycleGate gate = new LifecycleGate();
+
+		Runnable exitTask = gate.enter();
+
+		assertThat(gate.close(Duration.ofMillis(10))).isFalse();
+		assertThatThrownBy(gate::enter).isInstanceOf(IllegalStateException.class);
+
+		exitTask.run();
+
+		assertThat(gate.close(Duration.ZERO)).isTrue();
+	}
+
+	@Test
+	public void closeAwaitsEntrants() throws Exception {
+		LifecycleGate gate = new LifecycleGate();
+
+		Runnable exitTask1 = gate.enter();
+		Runnable exitTask2 = gate.enter();
+
+		CompletableFuture<Boolean> closed = CompletableFuture.supplyAsync(() -> gate.close(Duration.ofMinutes(1)));
+
+		exitTask1.run();
+
+		assertThat(closed).isNotDone();
+
+		exitTask2.run();
+
+		assertThat(closed.get(10, TimeUnit.SECONDS)).isTrue();
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.wildfly.clustering.marshalling.java.JavaByteBufferMarshaller;
+
+/**
+ * Unit test for {@link PackedSessionAttributes}.
+ */
+public class PackedSessionAttributesTestCase {
+	private static final int THRESHOLD = 256;
+	private static final String SMALL = "foo";
+	private static final String LARGE = "bar".repeat(THRESHOLD);
+
+	private final Map<String, Object> attributes = new HashMap<>();
+	private final Map<String, Object> subject = new PackedSessionAttributes(this.attributes, new JavaByteBufferMarshaller(Thread.currentThread().getContextClassLoader(), null), THRESHOLD);
+
+	@Test
+	public void pack() {
+		assertThat(this.subject.put("small", SMALL)).isNull();
+		assertThat(this.subject.put("large", LARGE)).isNull();
+
+		// Small attribute is packed, large attribute is persisted individually
+		assertThat(this.attributes).containsOnlyKeys(PackedSessionAttributes.PACKED_ATTRIBUTES_NAME, "large");
+		assertThat(this.packed()).containsExactlyEntriesOf(Map.of("small", SMALL));
+		assertThat(this.attributes).containsEntry("large", LARGE);
+
+		// Packed attributes are not visible to the application
+		assertThat(this.subject).hasSize(2).containsOnlyKeys("small", "large");
+		assertThat(this.subject.get("small")).isEqualTo(SMALL);
+		assertThat(this.subject.get("large")).isEqualTo(LARGE);
+		assertThat(this.subject.get(PackedSessionAttributes.PACKED_ATTRIBUTES_NAME)).isNull();
+		assertThat(this.subject.containsKey(PackedSessionAttributes.PACKED_ATTRIBUTES_NAME)).isFalse();
+		assertThatIllegalArgumentException().isThrownBy(() -> this.subject.put(PackedSessionAttributes.PACKED_ATTRIBUTES_NAME, SMALL));
+	}
+
+	@Test
+	public void threshold() {
+		assertThat(this.subject.put("foo", SMALL)).isNull();
+		assertThat(this.packed()).containsKey("foo");
+		assertThat(this.attributes).doesNotContainKey("foo");
+
+		// Crossing the threshold moves the attribute out of the packed attributes
+		assertThat(this.subject.put("foo", LARGE)).isEqualTo(SMALL);
+		assertThat(this.attributes).containsOnlyKeys("foo").containsEntry("foo", LARGE);
+		assertThat(this.subject.get("foo")).isEqualTo(LARGE);
+
+		// Dropping below the threshold moves the attribute back into the packed attributes
+		assertThat(this.subject.put("foo", SMALL)).isEqualTo(LARGE);
+		assertThat(this.attributes).containsOnlyKeys(PackedSessionAttributes.PACKED_ATTRIBUTES_NAME);
+		assertThat(this.packed()).containsExactlyEntriesOf(Map.of("foo", SMALL));
+		assertThat(this.subject.get("foo")).isEqualTo(SMALL);
+	}
+
+	@Test
+	public void putAll() {
+		this.subject.putAll(Map.of("small1", SMALL, "small2", SMALL + SMALL, "large", LARGE));
+
+		assertThat(this.attributes).containsOnlyKeys(PackedSessionAttributes.PACKED_ATTRIBUTES_NAME, "large");
+		assertThat(this.packed()).containsOnlyKeys("small1", "small2");
+		assertThat(this.subject).hasSize(3);
+	}
+
+	@Test
+	public void remove() {
+		this.subject.put("small1", SMALL);
+		this.subject.put("small2", SMALL);
+		this.subject.put("large", LARGE);
+
+		assertThat(this.subject.remove("small1")).isEqualTo(SMALL);
+		assertThat(this.packed()).containsOnlyKeys("small2");
+
+		assertThat(this.subject.remove("large")).isEqualTo(LARGE);
+		assertThat(this.attributes).containsOnlyKeys(PackedSessionAttributes.PACKED_ATTRIBUTES_NAME);
+
+		// Removing the last packed attribute removes the packed attributes entirely
+		assertThat(this.subject.remove("small2")).isEqualTo(SMALL);
+		assertThat(this.attributes).isEmpty();
+		assertThat(this.subject).isEmpty();
+
+		assertThat(this.subject.remove("missing")).isNull();
+		assertThat(this.subject.remove(PackedSessionAttributes.PACKED_ATTRIBUTES_NAME)).isNull();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> packed() {
+		return (Map<String, Object>) this.attributes.get(PackedSessionAttributes.PACKED_ATTRIBUTES_NAME);
+	}
+}
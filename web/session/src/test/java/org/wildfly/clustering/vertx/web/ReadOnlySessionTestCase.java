@@ -0,0 +1,133 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.clustering.session.ImmutableSession;
+import org.wildfly.clustering.session.ImmutableSessionMetaData;
+import org.wildfly.clustering.session.SessionManager;
+import org.wildfly.clustering.vertx.web.DistributableSessionTestCase.TestSession;
+
+/**
+ * Unit test for {@link ReadOnlySession}.
+ */
+public class ReadOnlySessionTestCase {
+	private static final String ID = "session";
+	private static final Duration MAX_IDLE = Duration.ofMinutes(30);
+
+	private final Vertx vertx = Vertx.vertx();
+	private final io.vertx.core.Context context = this.vertx.getOrCreateContext();
+	private final TestSession session = new TestSession(ID);
+	private final List<String> found = new CopyOnWriteArrayList<>();
+	private final SessionManager<Void> manager = DistributableSessionTestCase.proxy(SessionManager.class, (proxy, method, args) -> switch (method.getName()) {
+		case "findSession" -> {
+			this.found.add((String) args[0]);
+			yield this.session.getSession();
+		}
+		default -> throw new UnsupportedOperationException(method.getName());
+	});
+	private final LifecycleGate gate = new LifecycleGate();
+
+	@AfterEach
+	public void close() throws Exception {
+		this.vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void recent() throws Exception {
+		ReadOnlySession session = this.createReadOnlySession(Instant.now(), Duration.ZERO);
+
+		assertThat((Object) session.get("foo")).isEqualTo("bar");
+		assertThat(session.data()).containsExactly(Map.entry("foo", "bar"));
+
+		await(session.closeAsync());
+
+		// Last access time is recent, relative to the default threshold, i.e. a fraction of the maximum inactive interval
+		assertThat(this.found).isEmpty();
+		assertThat(this.session.lastAccessUpdates).hasValue(0);
+		assertThat(this.gate.close(Duration.ZERO)).isTrue();
+	}
+
+	@Test
+	public void stale() throws Exception {
+		ReadOnlySession session = this.createReadOnlySession(Instant.now().minus(MAX_IDLE.dividedBy(10)), Duration.ZERO);
+
+		await(session.closeAsync());
+
+		// Last access time is touched via the session manager
+		assertThat(this.found).containsExactly(ID);
+		assertThat(this.session.lastAccessUpdates).hasValue(1);
+		assertThat(this.session.closed).hasValue(1);
+		assertThat(this.gate.close(Duration.ZERO)).isTrue();
+
+		// Subsequent close is a no-op
+		await(session.closeAsync());
+		assertThat(this.found).hasSize(1);
+	}
+
+	@Test
+	public void threshold() throws Exception {
+		Instant lastAccessTime = Instant.now().minus(Duration.ofMinutes(2));
+
+		await(this.createReadOnlySession(lastAccessTime, Duration.ofMinutes(5)).closeAsync());
+
+		assertThat(this.found).isEmpty();
+
+		await(this.createReadOnlySession(lastAccessTime, Duration.ofMinutes(1)).closeAsync());
+
+		assertThat(this.found).containsExactly(ID);
+		assertThat(this.gate.close(Duration.ZERO)).isTrue();
+	}
+
+	@Test
+	public void immutable() throws Exception {
+		ReadOnlySession session = this.createReadOnlySession(Instant.now(), Duration.ZERO);
+
+		assertThatThrownBy(() -> session.put("foo", "baz")).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> session.putIfAbsent("baz", "qux")).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> session.computeIfAbsent("baz", key -> "qux")).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> session.remove("foo")).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(session::regenerateId).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(session::destroy).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> session.data().put("foo", "baz")).isInstanceOf(UnsupportedOperationException.class);
+
+		await(session.closeAsync());
+
+		assertThat(this.gate.close(Duration.ZERO)).isTrue();
+	}
+
+	private ReadOnlySession createReadOnlySession(Instant lastAccessTime, Duration lastAccessThreshold) {
+		Instant creationTime = lastAccessTime.minus(MAX_IDLE);
+		ImmutableSessionMetaData metaData = DistributableSessionTestCase.proxy(ImmutableSessionMetaData.class, (proxy, method, args) -> DistributableSessionTestCase.getMetaData(method, MAX_IDLE, creationTime, lastAccessTime));
+		Map<String, Object> attributes = Map.of("foo", "bar");
+		ImmutableSession session = DistributableSessionTestCase.proxy(ImmutableSession.class, (proxy, method, args) -> switch (method.getName()) {
+			case "getId" -> ID;
+			case "isValid" -> true;
+			case "getAttributes" -> attributes;
+			case "getMetaData" -> metaData;
+			default -> throw new UnsupportedOperationException(method.getName());
+		});
+		return new ReadOnlySession(this.manager, this.context, session, this.gate.enter(), lastAccessThreshold, UnaryOperator.identity());
+	}
+
+	private static <T> T await(Future<T> future) throws Exception {
+		return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.wildfly.clustering.marshalling.java.JavaByteBufferMarshaller;
+import org.wildfly.clustering.server.immutable.Immutability;
+
+/**
+ * Unit test for {@link SessionAttributeChangeDetector}.
+ */
+public class SessionAttributeChangeDetectorTestCase {
+
+	private final SessionAttributeChangeDetector detector = new SessionAttributeChangeDetector(Immutability.getDefault(), new JavaByteBufferMarshaller(Thread.currentThread().getContextClassLoader(), null));
+
+	@Test
+	public void isMutable() {
+		assertThat(this.detector.isMutable("foo")).isFalse();
+		assertThat(this.detector.isMutable(Integer.valueOf(1))).isFalse();
+		assertThat(this.detector.isMutable(new ArrayList<>())).isTrue();
+	}
+
+	@Test
+	public void unchanged() {
+		List<String> value = new ArrayList<>(List.of("foo"));
+		byte[] digest = this.detector.digest(value);
+
+		assertThat(this.detector.isChanged(value, digest)).isFalse();
+		// Digest depends only on marshalled form
+		assertThat(this.detector.digest(new ArrayList<>(List.of("foo")))).isEqualTo(digest);
+	}
+
+	@Test
+	public void changed() {
+		List<String> value = new ArrayList<>(List.of("foo"));
+		byte[] digest = this.detector.digest(value);
+
+		value.add("bar");
+
+		assertThat(this.detector.isChanged(value, digest)).isTrue();
+
+		value.remove("bar");
+
+		assertThat(this.detector.isChanged(value, digest)).isFalse();
+	}
+
+	@Test
+	public void notMarshallable() {
+		// Not serializable, so its changes cannot be detected
+		Object value = new Object();
+		byte[] digest = this.detector.digest(value);
+
+		assertThat(this.detector.isChanged(value, digest)).isTrue();
+	}
+}
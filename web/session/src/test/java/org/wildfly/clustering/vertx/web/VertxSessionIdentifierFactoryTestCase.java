@@ -38,4 +38,22 @@ public class VertxSessionIdentifierFactoryTestCase {
 			future.join();
 		}
 	}
+
+	@Test
+	public void unbound() throws Exception {
+		VertxSessionIdentifierFactory factory = new VertxSessionIdentifierFactory();
+		// Outside of any context
+		assertThat(factory.get().length()).isGreaterThan(SessionHandler.DEFAULT_SESSIONID_MIN_LENGTH);
+		Vertx vertx = Vertx.vertx();
+		try {
+			// Within a context
+			String id = vertx.getOrCreateContext().executeBlocking(factory::get).toCompletionStage().toCompletableFuture().join();
+			assertThat(id.length()).isGreaterThan(SessionHandler.DEFAULT_SESSIONID_MIN_LENGTH);
+			assertThat(id).isNotEqualTo(factory.get());
+		} finally {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			vertx.close().onComplete(future::complete, future::completeExceptionally);
+			future.join();
+		}
+	}
 }
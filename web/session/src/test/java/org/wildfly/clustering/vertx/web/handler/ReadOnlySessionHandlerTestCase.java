@@ -0,0 +1,135 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.wildfly.clustering.vertx.web.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.SessionHandler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wildfly.clustering.vertx.web.DistributableSessionStore;
+
+/**
+ * Unit test for {@link ReadOnlySessionHandler}.
+ */
+public class ReadOnlySessionHandlerTestCase {
+	private static final String ID = "session";
+
+	private final Vertx vertx = Vertx.vertx();
+	private final List<String> found = new CopyOnWriteArrayList<>();
+	private final Promise<Session> closed = Promise.promise();
+	private final TestSessionStore store = new TestSessionStore();
+	private HttpServer server;
+	private HttpClient client;
+
+	@BeforeEach
+	public void init() throws Exception {
+		Router router = Router.router(this.vertx);
+		router.route().handler(new ReadOnlySessionHandler(this.store)).handler(context -> {
+			Session session = context.session();
+			context.end(Objects.toString((session != null) ? session.get("foo") : null));
+		});
+		this.server = await(this.vertx.createHttpServer().requestHandler(router).listen(0));
+		this.client = this.vertx.createHttpClient();
+	}
+
+	@AfterEach
+	public void close() throws Exception {
+		await(this.vertx.close());
+	}
+
+	@Test
+	public void noCookie() throws Exception {
+		assertThat(this.request(null)).isEqualTo("null");
+
+		assertThat(this.found).isEmpty();
+	}
+
+	@Test
+	public void notFound() throws Exception {
+		assertThat(this.request("unknown")).isEqualTo("null");
+
+		assertThat(this.found).containsExactly("unknown");
+		assertThat(this.closed.future().isComplete()).isFalse();
+	}
+
+	@Test
+	public void found() throws Exception {
+		assertThat(this.request(ID)).isEqualTo("bar");
+
+		assertThat(this.found).containsExactly(ID);
+		// Session is closed, i.e. touched if necessary, once the response has ended
+		Session session = await(this.closed.future());
+		assertThat(session.id()).isEqualTo(ID);
+	}
+
+	private String request(String id) throws Exception {
+		return await(this.client.request(HttpMethod.GET, this.server.actualPort(), "localhost", "/").compose(request -> {
+			if (id != null) {
+				request.putHeader(HttpHeaders.COOKIE, SessionHandler.DEFAULT_SESSION_COOKIE_NAME + "=" + id);
+			}
+			return request.send();
+		}).compose(response -> response.body()).map(Object::toString));
+	}
+
+	private static <T> T await(Future<T> future) throws Exception {
+		return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+	}
+
+	private class TestSessionStore extends DistributableSessionStore {
+
+		TestSessionStore() {
+			super((configuration, options) -> {
+				throw new UnsupportedOperationException();
+			}, () -> {});
+		}
+
+		@Override
+		public Future<Session> getReadOnly(String id) {
+			ReadOnlySessionHandlerTestCase.this.found.add(id);
+			return Future.succeededFuture(id.equals(ID) ? createSession() : null);
+		}
+
+		@Override
+		public Future<Void> put(Session session) {
+			ReadOnlySessionHandlerTestCase.this.closed.tryComplete(session);
+			return Future.succeededFuture();
+		}
+	}
+
+	// Minimal stand-in for a read-only session
+	private static Session createSession() {
+		Map<String, Object> attributes = Map.of("foo", "bar");
+		return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class }, (proxy, method, args) -> switch (method.getName()) {
+			case "id" -> ID;
+			case "get" -> attributes.get(args[0]);
+			case "data" -> attributes;
+			case "isEmpty" -> attributes.isEmpty();
+			case "isDestroyed", "isRegenerated" -> false;
+			case "equals" -> proxy == args[0];
+			case "hashCode" -> System.identityHashCode(proxy);
+			case "toString" -> ID;
+			default -> throw new UnsupportedOperationException(method.getName());
+		});
+	}
+}